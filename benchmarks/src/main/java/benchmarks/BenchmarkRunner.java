@@ -0,0 +1,29 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so every result shows the
+ * memory allocated as well as the throughput. Takes the usual JMH options,
+ * such as the benchmarks to run or "-p stage=late". Includes main to run
+ * the benchmarks.
+ */
+public class BenchmarkRunner
+{
+	/**
+	 * Runs the benchmarks
+	 * @param args JMH options
+	 */
+	public static void main(String[] args) throws CommandLineOptionException,
+			RunnerException
+	{
+		CommandLineOptions options = new CommandLineOptions(args);
+		new Runner(new OptionsBuilder().parent(options).addProfiler(
+				GCProfiler.class).build()).run();
+	}
+}
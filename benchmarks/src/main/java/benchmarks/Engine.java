@@ -0,0 +1,164 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.SplittableRandom;
+
+/**
+ * Method handles of the game classes for the benchmarks. JMH needs its
+ * benchmarks to be in a package, and a class in a package cannot name the
+ * classes of the game, which are not in one, so they are reached through
+ * method handles instead. Each handle is a constant, so the JIT compiles
+ * invokeExact the same as a direct call. The game classes are changed to
+ * Object in the type of each handle, so the game objects are passed around
+ * as Objects. Includes the handles and freeMoves to list the moves of a
+ * grid.
+ */
+final class Engine
+{
+	private final static Class<?> GRID = find("Grid");
+	private final static Class<?> PLAYER = find("Player");
+	private final static Class<?> BIT_BOARD = find("BitBoard");
+	private final static Class<?> MOVE_LIST = find("MoveList");
+
+	// Grid
+	final static MethodHandle NEW_GRID = constructor(GRID, int.class,
+			int.class);
+	final static MethodHandle COPY_GRID = constructor(GRID, GRID);
+	final static MethodHandle PLAY = method(GRID, "play", int.class,
+			int.class);
+	// The move undone is not needed, so it is dropped
+	final static MethodHandle UNDO = method(GRID, "undo").asType(
+			MethodType.methodType(void.class, Object.class));
+	final static MethodHandle CALCULATE_SCORE = method(GRID,
+			"calculateScore", int.class);
+	final static MethodHandle WRITE_TO_FILE = method(GRID, "writeToFile",
+			String.class);
+	final static MethodHandle READ_FROM_FILE = method(GRID, "readFromFile",
+			String.class);
+
+	// Player
+	final static MethodHandle NEW_PLAYER = constructor(PLAYER, int.class,
+			int.class);
+	final static MethodHandle SET_RANDOM = method(PLAYER, "setRandom",
+			SplittableRandom.class);
+	final static MethodHandle MAKE_MOVE = method(PLAYER, "makeMove", GRID);
+	final static MethodHandle FEWEST_BOXES = method(PLAYER, "fewestBoxes",
+			GRID);
+
+	// The free moves of a grid
+	private final static MethodHandle GET_STATE = method(GRID, "getState");
+	private final static MethodHandle FREE_EDGES = method(BIT_BOARD,
+			"freeEdges");
+	private final static MethodHandle MOVE = method(BIT_BOARD, "move",
+			int.class);
+	private final static MethodHandle SIZE = method(MOVE_LIST, "size");
+	private final static MethodHandle GET = method(MOVE_LIST, "get",
+			int.class);
+
+	private Engine()
+	{
+	}
+
+	/**
+	 * Lists the moves that can still be made on a grid
+	 * @param grid the Grid
+	 * @return the packed moves
+	 */
+	static int[] freeMoves(Object grid) throws Throwable
+	{
+		Object state = (Object) GET_STATE.invokeExact(grid);
+		Object freeEdges = (Object) FREE_EDGES.invokeExact(state);
+		int[] moves = new int[(int) SIZE.invokeExact(freeEdges)];
+		for (int index = 0; index < moves.length; index++)
+			moves[index] = (int) MOVE.invokeExact(state,
+					(int) GET.invokeExact(freeEdges, index));
+		return moves;
+	}
+
+	/**
+	 * Finds a game class
+	 * @param name the name of the class
+	 * @return the class
+	 */
+	private static Class<?> find(String name)
+	{
+		try
+		{
+			return Class.forName(name);
+		}
+		catch (ClassNotFoundException exp)
+		{
+			throw new IllegalStateException("The game classes are missing", exp);
+		}
+	}
+
+	/**
+	 * Finds a public constructor
+	 * @param owner the class
+	 * @param parameters the types of the parameters
+	 * @return the handle, with the game classes changed to Object
+	 */
+	private static MethodHandle constructor(Class<?> owner,
+			Class<?>... parameters)
+	{
+		try
+		{
+			return erase(MethodHandles.publicLookup().unreflectConstructor(
+					owner.getConstructor(parameters)));
+		}
+		catch (ReflectiveOperationException exp)
+		{
+			throw new IllegalStateException(exp);
+		}
+	}
+
+	/**
+	 * Finds a public method, static or not
+	 * @param owner the class
+	 * @param name the name of the method
+	 * @param parameters the types of the parameters
+	 * @return the handle, with the game classes changed to Object
+	 */
+	private static MethodHandle method(Class<?> owner, String name,
+			Class<?>... parameters)
+	{
+		try
+		{
+			return erase(MethodHandles.publicLookup().unreflect(
+					owner.getMethod(name, parameters)));
+		}
+		catch (ReflectiveOperationException exp)
+		{
+			throw new IllegalStateException(exp);
+		}
+	}
+
+	/**
+	 * Changes the game classes, which are the classes without a package, to
+	 * Object in the type of a handle
+	 * @param handle the handle
+	 * @return the handle with the game classes changed
+	 */
+	private static MethodHandle erase(MethodHandle handle)
+	{
+		MethodType type = handle.type();
+		for (int index = 0; index < type.parameterCount(); index++)
+			if (isGameClass(type.parameterType(index)))
+				type = type.changeParameterType(index, Object.class);
+		if (isGameClass(type.returnType()))
+			type = type.changeReturnType(Object.class);
+		return handle.asType(type);
+	}
+
+	/**
+	 * Checks to see if a type is one of the game classes
+	 * @param type the type to check
+	 * @return true if the type is a class without a package
+	 */
+	private static boolean isGameClass(Class<?> type)
+	{
+		return !type.isPrimitive() && type.getName().indexOf('.') < 0;
+	}
+}
@@ -0,0 +1,84 @@
+package benchmarks;
+
+import java.io.File;
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A game partly played by two computer players using the simple rules, for
+ * the benchmarks to work on. The early stage has a tenth of the edges taken,
+ * the middle stage half and the late stage nine tenths. The same seed is
+ * used every time so every run measures the same position. Each player
+ * has its own random numbers, as in SelfPlay. Each thread has its own
+ * game. Includes setUp to play the game to its stage and tearDown
+ * to delete the saved game.
+ */
+@State(Scope.Thread)
+public class GameState
+{
+	// The seed of the random safe moves of the superhero, the villain's is
+	// the next number
+	public final static long SEED = 20150611L;
+
+	// The number of rows and columns of boxes
+	@Param({ "8" })
+	public int size;
+
+	// How far the game has gone
+	@Param({ "early", "middle", "late" })
+	public String stage;
+
+	// The game, the player to move, a move that can be made next and a file
+	// the game has been saved to
+	public Object grid;
+	public int playerNo;
+	public int nextMove;
+	public String fileName;
+
+	/**
+	 * Plays the game to its stage and saves it
+	 * @throws Throwable if the game cannot be played or saved
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws Throwable
+	{
+		double taken = stage.equals("early") ? 0.1 : stage.equals("middle")
+				? 0.5 : 0.9;
+		grid = (Object) Engine.NEW_GRID.invokeExact(size, size);
+		int edges = Engine.freeMoves(grid).length;
+		Object superhero = (Object) Engine.NEW_PLAYER.invokeExact(0, 1);
+		Object villain = (Object) Engine.NEW_PLAYER.invokeExact(0, -1);
+		Engine.SET_RANDOM.invokeExact(superhero, new SplittableRandom(SEED));
+		Engine.SET_RANDOM.invokeExact(villain, new SplittableRandom(SEED + 1));
+
+		playerNo = 1;
+		for (int move = 0; move < (int) (edges * taken); move++)
+		{
+			Object current = playerNo == 1 ? superhero : villain;
+			int next = (int) Engine.MAKE_MOVE.invokeExact(current, grid);
+			if ((int) Engine.PLAY.invokeExact(grid, next, playerNo) == 0)
+				playerNo = -playerNo;
+		}
+		nextMove = Engine.freeMoves(grid)[0];
+
+		File file = File.createTempFile("gameBoard", ".dat");
+		file.deleteOnExit();
+		fileName = file.getPath();
+		Engine.WRITE_TO_FILE.invokeExact(grid, fileName);
+	}
+
+	/**
+	 * Deletes the saved game
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		new File(fileName).delete();
+	}
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the Grid at each stage of a game: making and undoing a move,
+ * copying the grid, counting the score, and saving and loading the game.
+ * Includes playAndUndo, copy, calculateScore, writeToFile and readFromFile.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridBenchmark
+{
+	/**
+	 * Makes a move and undoes it, as the computer does when it looks ahead
+	 * @param game the game
+	 * @return the number of boxes the move filled
+	 */
+	@Benchmark
+	public int playAndUndo(GameState game) throws Throwable
+	{
+		int filled = (int) Engine.PLAY.invokeExact(game.grid, game.nextMove,
+				game.playerNo);
+		Engine.UNDO.invokeExact(game.grid);
+		return filled;
+	}
+
+	/**
+	 * Copies the grid
+	 * @param game the game
+	 * @return the copy
+	 */
+	@Benchmark
+	public Object copy(GameState game) throws Throwable
+	{
+		return (Object) Engine.COPY_GRID.invokeExact(game.grid);
+	}
+
+	/**
+	 * Counts the boxes of both players
+	 * @param game the game
+	 * @return the superhero's score minus the villain's
+	 */
+	@Benchmark
+	public int calculateScore(GameState game) throws Throwable
+	{
+		return (int) Engine.CALCULATE_SCORE.invokeExact(game.grid, 1)
+				- (int) Engine.CALCULATE_SCORE.invokeExact(game.grid, -1);
+	}
+
+	/**
+	 * Saves the game to a file
+	 * @param game the game
+	 */
+	@Benchmark
+	public void writeToFile(GameState game) throws Throwable
+	{
+		Engine.WRITE_TO_FILE.invokeExact(game.grid, game.fileName);
+	}
+
+	/**
+	 * Loads the game from a file
+	 * @param game the game
+	 * @return the loaded grid
+	 */
+	@Benchmark
+	public Object readFromFile(GameState game) throws Throwable
+	{
+		return (Object) Engine.READ_FROM_FILE.invokeExact(game.fileName);
+	}
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the simple computer player at each stage of a game. Neither
+ * method changes the grid, so every call works on the same position, and
+ * every call gets a new player so nothing worked out by the last call is
+ * used again. Includes makeMove and fewestBoxes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerBenchmark
+{
+	/**
+	 * Chooses the player's next move
+	 * @param game the game
+	 * @param player the player to move
+	 * @return the packed move
+	 */
+	@Benchmark
+	public int makeMove(GameState game, PlayerState player) throws Throwable
+	{
+		return (int) Engine.MAKE_MOVE.invokeExact(player.player, game.grid);
+	}
+
+	/**
+	 * Finds the move that gives away the fewest boxes, checking every move
+	 * @param game the game
+	 * @param player the player to move
+	 * @return the packed move
+	 */
+	@Benchmark
+	public int fewestBoxes(GameState game, PlayerState player)
+			throws Throwable
+	{
+		return (int) Engine.FEWEST_BOXES.invokeExact(player.player,
+				game.grid);
+	}
+}
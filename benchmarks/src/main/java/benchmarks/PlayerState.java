@@ -0,0 +1,35 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The player to move in a GameState, made again before every call of a
+ * benchmark. The simple player keeps what its endgame solver has worked out
+ * between moves, so a player used for many calls would mostly measure
+ * looking up the answers of earlier calls. The new player gets random
+ * numbers with the same seed every time. Includes setUp to make the player.
+ */
+@State(Scope.Thread)
+public class PlayerState
+{
+	// The player to move
+	public Object player;
+
+	/**
+	 * Makes a new player for the side to move in the game
+	 * @param game the game
+	 * @throws Throwable if the player cannot be made
+	 */
+	@Setup(Level.Invocation)
+	public void setUp(GameState game) throws Throwable
+	{
+		player = (Object) Engine.NEW_PLAYER.invokeExact(0, game.playerNo);
+		Engine.SET_RANDOM.invokeExact(player, new SplittableRandom(
+				GameState.SEED + (game.playerNo == 1 ? 0 : 1)));
+	}
+}
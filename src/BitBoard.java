@@ -0,0 +1,750 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Keeps track of the state of the game board using primitive arrays. Every
+ * edge of the board is stored exactly once as a bit, and every box stores
+ * the number of sides that have been taken together with the player that
+ * filled it, packed into a single byte. Edges are numbered with all the
+ * horizontal edges first (row by row, including the bottom border) followed
+ * by all the vertical edges (row by row, including the right border). Boxes
+ * are numbered row by row. The edges that have not been taken are also kept
+ * in a MoveList so a free edge can be picked or removed without searching,
+ * and the edges that have been taken are kept in order so moves can be
+ * undone. The board also keeps a 64 bit Zobrist hash of the edges that have
+ * been taken and the player whose turn it is, which is updated with every
+ * move and undo. Includes a constructor to create an empty board and another
+ * to copy a board, edge to find the edge on a side of a box, move and edgeOf
+ * to convert between edges and packed moves, play to take an edge, undo to
+ * give back the last edge taken, isTaken to check whether an edge has been
+ * taken, sidesTaken and owner to look at a box, score and filledBoxes to
+ * count the boxes that have been filled, capturableBoxes to return the boxes
+ * with three sides taken, safeEdges to return the edges that do not give a
+ * box its third side, chainTracker to return the chains and loops on the
+ * board, freeEdges and nextFreeEdge to walk through the edges that are left,
+ * and hash, edgeKey, toMove and samePosition to identify a position.
+ */
+public class BitBoard implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	// Masks for the information packed into each box
+	private final static int SIDES_MASK = 0x7;
+	private final static int SUPERHERO_FILLED = 0x8;
+	private final static int VILLAIN_FILLED = 0x10;
+
+	// Mixed with the size of the board to make the Zobrist keys
+	private final static long ZOBRIST_SEED = 0x5DEECE66DL;
+
+	private final int rows;
+	private final int cols;
+	private final int horizontalEdges;
+	private final int totalEdges;
+	private final long[] edges;
+	private final byte[] boxes;
+	// The edges in the order they were taken, shifted left by one with the
+	// lowest bit set if the villain took the edge
+	private final int[] history;
+	private int historySize;
+	// The player whose turn it is
+	private int toMove;
+	// Rebuilt from the edges when a board is read from a file
+	private transient MoveList freeEdges;
+	private transient MoveList capturableBoxes;
+	private transient MoveList safeEdges;
+	private transient ChainTracker chainTracker;
+	private transient int superheroBoxes;
+	private transient int villainBoxes;
+	private transient long keySeed;
+	private transient long hash;
+
+	/**
+	 * Constructs an empty board with the given number of rows and columns
+	 * @param rows the number of rows of boxes
+	 * @param cols the number of columns of boxes
+	 */
+	public BitBoard(int rows, int cols)
+	{
+		this.rows = rows;
+		this.cols = cols;
+		horizontalEdges = (rows + 1) * cols;
+		totalEdges = horizontalEdges + rows * (cols + 1);
+		edges = new long[(totalEdges + 63) >>> 6];
+		boxes = new byte[rows * cols];
+		history = new int[totalEdges];
+		historySize = 0;
+		toMove = 1;
+		keySeed = keySeed(rows, cols);
+		hash = 0;
+		freeEdges = new MoveList(totalEdges);
+		safeEdges = new MoveList(totalEdges);
+		for (int edge = 0; edge < totalEdges; edge++)
+		{
+			freeEdges.add(edge);
+			safeEdges.add(edge);
+		}
+		capturableBoxes = new MoveList(boxes.length);
+		chainTracker = new ChainTracker(this);
+	}
+
+	/**
+	 * Constructs a copy of the given board
+	 * @param other the board to copy
+	 */
+	public BitBoard(BitBoard other)
+	{
+		rows = other.rows;
+		cols = other.cols;
+		horizontalEdges = other.horizontalEdges;
+		totalEdges = other.totalEdges;
+		edges = other.edges.clone();
+		boxes = other.boxes.clone();
+		history = other.history.clone();
+		historySize = other.historySize;
+		toMove = other.toMove;
+		keySeed = other.keySeed;
+		hash = other.hash;
+		superheroBoxes = other.superheroBoxes;
+		villainBoxes = other.villainBoxes;
+		freeEdges = new MoveList(other.freeEdges);
+		capturableBoxes = new MoveList(other.capturableBoxes);
+		safeEdges = new MoveList(other.safeEdges);
+		chainTracker = new ChainTracker(this, other.chainTracker);
+	}
+
+	/**
+	 * Reads a board from a file and rebuilds the lists of free and safe
+	 * edges, the boxes with three sides taken, the chains, the number of
+	 * boxes each player has filled and the hash
+	 * @param in the stream to read from
+	 */
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException
+	{
+		in.defaultReadObject();
+		// Boards saved before the turn was kept start with the superhero
+		if (toMove == 0)
+			toMove = 1;
+		keySeed = keySeed(rows, cols);
+		hash = toMove == -1 ? sideKey() : 0;
+		freeEdges = new MoveList(totalEdges);
+		safeEdges = new MoveList(totalEdges);
+		for (int edge = 0; edge < totalEdges; edge++)
+		{
+			if (isTaken(edge))
+				hash ^= edgeKey(edge);
+			else
+			{
+				freeEdges.add(edge);
+				if (isSafe(edge))
+					safeEdges.add(edge);
+			}
+		}
+		capturableBoxes = new MoveList(boxes.length);
+		chainTracker = new ChainTracker(this);
+		for (int box = 0; box < boxes.length; box++)
+		{
+			chainTracker.boxChanged(box);
+			if (sidesTaken(box) == 3)
+				capturableBoxes.add(box);
+			if (owner(box) == 1)
+				superheroBoxes++;
+			else if (owner(box) == -1)
+				villainBoxes++;
+		}
+	}
+
+	/**
+	 * Returns the number of rows of boxes
+	 * @return the number of rows
+	 */
+	public int rows()
+	{
+		return rows;
+	}
+
+	/**
+	 * Returns the number of columns of boxes
+	 * @return the number of columns
+	 */
+	public int cols()
+	{
+		return cols;
+	}
+
+	/**
+	 * Returns the number of edges on the board
+	 * @return the number of edges
+	 */
+	public int edgeCount()
+	{
+		return totalEdges;
+	}
+
+	/**
+	 * Returns the number of boxes on the board
+	 * @return the number of boxes
+	 */
+	public int boxCount()
+	{
+		return boxes.length;
+	}
+
+	/**
+	 * Finds the edge on the given side of a box
+	 * @param row the row of the box
+	 * @param col the column of the box
+	 * @param side 1 for top, 2 for bottom, 3 for left and 4 for right
+	 * @return the edge on that side of the box
+	 */
+	public int edge(int row, int col, int side)
+	{
+		if (side == Box.TOP)
+			return row * cols + col;
+		if (side == Box.BOTTOM)
+			return (row + 1) * cols + col;
+		if (side == Box.LEFT)
+			return horizontalEdges + row * (cols + 1) + col;
+		return horizontalEdges + row * (cols + 1) + col + 1;
+	}
+
+	/**
+	 * Finds the edge of a packed move
+	 * @param move the packed move
+	 * @return the edge of the move
+	 */
+	public int edgeOf(int move)
+	{
+		return edge(Move.row(move), Move.col(move), Move.side(move));
+	}
+
+	/**
+	 * Packs an edge into a move against the box it is recorded against
+	 * @param edge the edge to pack
+	 * @return the packed move
+	 */
+	public int move(int edge)
+	{
+		return Move.encode(edgeRow(edge), edgeCol(edge), edgeSide(edge));
+	}
+
+	/**
+	 * Returns the edges that have not been taken. The list must not be
+	 * changed by the caller.
+	 * @return the list of free edges
+	 */
+	public MoveList freeEdges()
+	{
+		return freeEdges;
+	}
+
+	/**
+	 * Checks to see whether an edge is horizontal
+	 * @param edge the edge to check
+	 * @return true if the edge is horizontal false if it is vertical
+	 */
+	public boolean isHorizontal(int edge)
+	{
+		return edge < horizontalEdges;
+	}
+
+	/**
+	 * Finds the box above a horizontal edge or to the left of a vertical edge
+	 * @param edge the edge to check
+	 * @return the box before the edge or -1 if the edge is on the border
+	 */
+	public int boxBefore(int edge)
+	{
+		if (edge < horizontalEdges)
+			return edge >= cols ? edge - cols : -1;
+		int vertical = edge - horizontalEdges;
+		int col = vertical % (cols + 1);
+		if (col == 0)
+			return -1;
+		return (vertical / (cols + 1)) * cols + col - 1;
+	}
+
+	/**
+	 * Finds the box below a horizontal edge or to the right of a vertical edge
+	 * @param edge the edge to check
+	 * @return the box after the edge or -1 if the edge is on the border
+	 */
+	public int boxAfter(int edge)
+	{
+		if (edge < horizontalEdges)
+			return edge < horizontalEdges - cols ? edge : -1;
+		int vertical = edge - horizontalEdges;
+		int col = vertical % (cols + 1);
+		if (col == cols)
+			return -1;
+		return (vertical / (cols + 1)) * cols + col;
+	}
+
+	/**
+	 * Returns the row of the box that an edge is recorded against. Edges
+	 * belong to the box below or to the right of them, except for the edges
+	 * on the bottom and right borders.
+	 * @param edge the edge to check
+	 * @return the row of the box
+	 */
+	public int edgeRow(int edge)
+	{
+		int box = boxAfter(edge);
+		if (box < 0)
+			box = boxBefore(edge);
+		return box / cols;
+	}
+
+	/**
+	 * Returns the column of the box that an edge is recorded against
+	 * @param edge the edge to check
+	 * @return the column of the box
+	 */
+	public int edgeCol(int edge)
+	{
+		int box = boxAfter(edge);
+		if (box < 0)
+			box = boxBefore(edge);
+		return box % cols;
+	}
+
+	/**
+	 * Returns the side of the box that an edge is recorded against
+	 * @param edge the edge to check
+	 * @return 1 for top, 2 for bottom, 3 for left and 4 for right
+	 */
+	public int edgeSide(int edge)
+	{
+		boolean border = boxAfter(edge) < 0;
+		if (edge < horizontalEdges)
+			return border ? Box.BOTTOM : Box.TOP;
+		return border ? Box.RIGHT : Box.LEFT;
+	}
+
+	/**
+	 * Checks to see whether an edge has been taken
+	 * @param edge the edge to check
+	 * @return true if the edge has been taken
+	 */
+	public boolean isTaken(int edge)
+	{
+		return (edges[edge >>> 6] & (1L << edge)) != 0;
+	}
+
+	/**
+	 * Checks to see whether a side of a box has been taken
+	 * @param row the row of the box
+	 * @param col the column of the box
+	 * @param side the side to check
+	 * @return true if the side has been taken
+	 */
+	public boolean isSideTaken(int row, int col, int side)
+	{
+		return isTaken(edge(row, col, side));
+	}
+
+	/**
+	 * Returns the number of sides of a box that have been taken
+	 * @param box the box to check
+	 * @return the number of sides taken
+	 */
+	public int sidesTaken(int box)
+	{
+		return boxes[box] & SIDES_MASK;
+	}
+
+	/**
+	 * Returns the player that filled a box
+	 * @param box the box to check
+	 * @return 1 if the superhero filled the box
+	 * 			-1 if the villain filled the box
+	 * 			0 if the box has not been filled
+	 */
+	public int owner(int box)
+	{
+		int packed = boxes[box];
+		if ((packed & SUPERHERO_FILLED) != 0)
+			return 1;
+		if ((packed & VILLAIN_FILLED) != 0)
+			return -1;
+		return 0;
+	}
+
+	/**
+	 * Returns the boxes that have exactly three sides taken, which can be
+	 * filled by taking their last side. The list must not be changed by the
+	 * caller.
+	 * @return the list of boxes with three sides taken
+	 */
+	public MoveList capturableBoxes()
+	{
+		return capturableBoxes;
+	}
+
+	/**
+	 * Returns the free edges that do not give any box its third side. The
+	 * list must not be changed by the caller.
+	 * @return the list of safe edges
+	 */
+	public MoveList safeEdges()
+	{
+		return safeEdges;
+	}
+
+	/**
+	 * Checks to see whether an edge is free and the boxes on both sides of
+	 * it have fewer than two sides taken
+	 * @param edge the edge to check
+	 * @return true if taking the edge does not give a box its third side
+	 */
+	private boolean isSafe(int edge)
+	{
+		if (isTaken(edge))
+			return false;
+		int box = boxBefore(edge);
+		if (box >= 0 && sidesTaken(box) >= 2)
+			return false;
+		box = boxAfter(edge);
+		return box < 0 || sidesTaken(box) < 2;
+	}
+
+	/**
+	 * Returns the chains and loops of boxes with two sides taken
+	 * @return the tracker that keeps the chains up to date
+	 */
+	public ChainTracker chainTracker()
+	{
+		return chainTracker;
+	}
+
+	/**
+	 * Returns the number of boxes a player has filled
+	 * @param player 1 for the superhero or -1 for the villain
+	 * @return the number of boxes filled by the player
+	 */
+	public int score(int player)
+	{
+		return player == 1 ? superheroBoxes : villainBoxes;
+	}
+
+	/**
+	 * Returns the number of boxes that have been filled by either player
+	 * @return the number of boxes filled
+	 */
+	public int filledBoxes()
+	{
+		return superheroBoxes + villainBoxes;
+	}
+
+	/**
+	 * Checks to see whether every box has been filled
+	 * @return true if the game is over
+	 */
+	public boolean isFull()
+	{
+		return superheroBoxes + villainBoxes == boxes.length;
+	}
+
+	/**
+	 * Finds the first side of a box that has not been taken
+	 * @param box the box to check
+	 * @return 1 for top, 2 for bottom, 3 for left, 4 for right
+	 * 			or 0 if every side has been taken
+	 */
+	public int freeSide(int box)
+	{
+		int row = box / cols;
+		int col = box % cols;
+		for (int side = Box.TOP; side <= Box.RIGHT; side++)
+			if (!isTaken(edge(row, col, side)))
+				return side;
+		return 0;
+	}
+
+	/**
+	 * Finds the first edge around a box that has not been taken
+	 * @param box the box to check
+	 * @return the free edge or -1 if every side has been taken
+	 */
+	public int freeEdge(int box)
+	{
+		int side = freeSide(box);
+		if (side == 0)
+			return -1;
+		return edge(box / cols, box % cols, side);
+	}
+
+	/**
+	 * Finds the first edge at or after the given edge that has not been taken
+	 * @param from the edge to start looking from
+	 * @return the next free edge or -1 if there are none left
+	 */
+	public int nextFreeEdge(int from)
+	{
+		if (from >= totalEdges)
+			return -1;
+		int word = from >>> 6;
+		long free = ~edges[word] & (-1L << from);
+		while (free == 0)
+		{
+			if (++word == edges.length)
+				return -1;
+			free = ~edges[word];
+		}
+		int edge = (word << 6) + Long.numberOfTrailingZeros(free);
+		return edge < totalEdges ? edge : -1;
+	}
+
+	/**
+	 * Returns the number of edges that have been taken
+	 * @return the number of moves that have been made
+	 */
+	public int movesMade()
+	{
+		return historySize;
+	}
+
+	/**
+	 * Returns an edge that has been taken
+	 * @param index the position of the move, 0 for the first move made
+	 * @return the edge that was taken
+	 */
+	public int moveAt(int index)
+	{
+		return history[index] >>> 1;
+	}
+
+	/**
+	 * Returns the player whose turn it is. A player who fills a box takes
+	 * another turn.
+	 * @return 1 if it is the superhero's turn
+	 * 			-1 if it is the villain's turn
+	 */
+	public int toMove()
+	{
+		return toMove;
+	}
+
+	/**
+	 * Sets the player whose turn it is, used when a game is started or loaded
+	 * @param player 1 for the superhero or -1 for the villain
+	 */
+	public void setToMove(int player)
+	{
+		if (player != toMove && (player == 1 || player == -1))
+		{
+			toMove = player;
+			hash ^= sideKey();
+		}
+	}
+
+	/**
+	 * Returns the Zobrist hash of the position: the edges that have been
+	 * taken and the player whose turn it is. Boards of the same size always
+	 * use the same keys, so the hash can be saved and compared later.
+	 * @return the 64 bit hash
+	 */
+	public long hash()
+	{
+		return hash;
+	}
+
+	/**
+	 * Checks to see if another board is in the same position: the same size,
+	 * the same edges taken and the same player to move. Who filled each box
+	 * does not matter because it does not change the rest of the game.
+	 * @param other the board to compare with
+	 * @return true if the boards are in the same position
+	 */
+	public boolean samePosition(BitBoard other)
+	{
+		return other.hash == hash && other.rows == rows && other.cols == cols
+				&& other.toMove == toMove && Arrays.equals(other.edges, edges);
+	}
+
+	/**
+	 * Works out the seed of the Zobrist keys for a size of board
+	 * @param rows the number of rows of boxes
+	 * @param cols the number of columns of boxes
+	 * @return the seed
+	 */
+	private static long keySeed(int rows, int cols)
+	{
+		return mix(ZOBRIST_SEED + ((long) rows << 32 | cols));
+	}
+
+	/**
+	 * Returns the Zobrist key of an edge. The keys are worked out when they
+	 * are needed instead of being stored, so very large boards do not need a
+	 * table of keys. The OpeningBook uses them to hash a position turned
+	 * around or flipped over.
+	 * @param edge the edge
+	 * @return the key of the edge
+	 */
+	public long edgeKey(int edge)
+	{
+		return mix(keySeed + edge);
+	}
+
+	/**
+	 * Returns the Zobrist key that is added when it is the villain's turn
+	 * @return the key for the player to move
+	 */
+	private long sideKey()
+	{
+		return mix(keySeed - 1);
+	}
+
+	/**
+	 * Scrambles a number into a random looking 64 bit key (the SplitMix64
+	 * finaliser)
+	 * @param value the number to scramble
+	 * @return the key
+	 */
+	private static long mix(long value)
+	{
+		long z = value * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Takes an edge for a player and fills in any box that it completes.
+	 * The edge is remembered so the move can be undone. The player keeps
+	 * the turn if a box was filled, otherwise it passes to the other player.
+	 * @param edge the edge to take
+	 * @param player the player taking the edge
+	 * @return -1 if the edge was already taken
+	 * 			0 if the edge was taken and no boxes were filled
+	 * 			>0 the number of boxes that were filled
+	 */
+	public int play(int edge, int player)
+	{
+		long bit = 1L << edge;
+		if ((edges[edge >>> 6] & bit) != 0)
+			return -1;
+		edges[edge >>> 6] |= bit;
+		freeEdges.remove(edge);
+		safeEdges.remove(edge);
+		history[historySize++] = edge << 1 | (player == -1 ? 1 : 0);
+		hash ^= edgeKey(edge);
+
+		// Update the boxes on both sides of the edge
+		int filledBoxes = 0;
+		int box = boxBefore(edge);
+		if (box >= 0 && addSide(box, player))
+			filledBoxes++;
+		box = boxAfter(edge);
+		if (box >= 0 && addSide(box, player))
+			filledBoxes++;
+
+		int next = filledBoxes > 0 ? player : -player;
+		if (next != toMove)
+		{
+			toMove = next;
+			hash ^= sideKey();
+		}
+		return filledBoxes;
+	}
+
+	/**
+	 * Gives back the last edge that was taken and empties any box that it
+	 * filled, leaving the board exactly as it was before the edge was taken
+	 * and giving the turn back to the player who took it
+	 * @return the edge that was given back or -1 if no edges have been taken
+	 */
+	public int undo()
+	{
+		if (historySize == 0)
+			return -1;
+		int entry = history[--historySize];
+		int edge = entry >>> 1;
+		int player = (entry & 1) == 1 ? -1 : 1;
+		edges[edge >>> 6] &= ~(1L << edge);
+		hash ^= edgeKey(edge);
+		if (player != toMove)
+		{
+			toMove = player;
+			hash ^= sideKey();
+		}
+		freeEdges.add(edge);
+
+		// Update the boxes on both sides of the edge
+		int box = boxBefore(edge);
+		if (box >= 0)
+			removeSide(box);
+		box = boxAfter(edge);
+		if (box >= 0)
+			removeSide(box);
+		if (isSafe(edge))
+			safeEdges.add(edge);
+		return edge;
+	}
+
+	/**
+	 * Adds a side to a box and fills it in if every side has been taken
+	 * @param box the box to update
+	 * @param player the player taking the side
+	 * @return true if the box was filled
+	 */
+	private boolean addSide(int box, int player)
+	{
+		int packed = boxes[box] + 1;
+		int sides = packed & SIDES_MASK;
+		chainTracker.boxChanged(box);
+		// A box with two sides taken makes all of its free sides unsafe
+		if (sides == 2)
+			for (int side = Box.TOP; side <= Box.RIGHT; side++)
+				safeEdges.remove(edge(box / cols, box % cols, side));
+		else if (sides == 3)
+			capturableBoxes.add(box);
+		boolean filled = sides == 4;
+		if (filled)
+		{
+			capturableBoxes.remove(box);
+			if (player == 1)
+			{
+				packed |= SUPERHERO_FILLED;
+				superheroBoxes++;
+			}
+			else
+			{
+				packed |= VILLAIN_FILLED;
+				villainBoxes++;
+			}
+		}
+		boxes[box] = (byte) packed;
+		return filled;
+	}
+
+	/**
+	 * Removes a side from a box and empties it if it was filled
+	 * @param box the box to update
+	 */
+	private void removeSide(int box)
+	{
+		int packed = boxes[box];
+		if ((packed & SUPERHERO_FILLED) != 0)
+			superheroBoxes--;
+		else if ((packed & VILLAIN_FILLED) != 0)
+			villainBoxes--;
+		int sides = (packed & SIDES_MASK) - 1;
+		chainTracker.boxChanged(box);
+		if (sides == 3)
+			capturableBoxes.add(box);
+		else if (sides == 2)
+			capturableBoxes.remove(box);
+		boxes[box] = (byte) sides;
+		// Going back to one side taken can make the free sides safe again
+		if (sides == 1)
+			for (int side = Box.TOP; side <= Box.RIGHT; side++)
+			{
+				int edge = edge(box / cols, box % cols, side);
+				if (isSafe(edge))
+					safeEdges.add(edge);
+			}
+	}
+}
\ No newline at end of file
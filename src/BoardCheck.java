@@ -0,0 +1,403 @@
+import java.util.Random;
+
+/**
+ * Checks that a BitBoard keeps its boxes up to date, without opening the
+ * game. Random games are played on boards of every size up to 9 by 9, with a
+ * few moves taken back now and then. After every move and every undo,
+ * everything the board keeps track of as moves are made, from the sides of
+ * each box to the list of free edges, is compared with a count from scratch
+ * of the edges that have been taken, which the check keeps for itself. Run
+ * it with the number of games to play and, if wanted, the seed of the random
+ * moves so a failed run can be repeated. It stops with an exception at the
+ * first difference. Includes main to run the check, playGame to play and
+ * check one game, and check to compare a board with the count from scratch.
+ */
+public class BoardCheck
+{
+	// The most rows or columns of the boards that are played on
+	private final static int MAX_SIZE = 9;
+
+	/**
+	 * Plays and checks random games
+	 * @param args the number of games and the seed of the random moves
+	 */
+	public static void main(String[] args)
+	{
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : System
+				.nanoTime();
+		Random random = new Random(seed);
+		long moves = 0;
+		for (int game = 0; game < games; game++)
+			moves += playGame(1 + random.nextInt(MAX_SIZE),
+					1 + random.nextInt(MAX_SIZE), random);
+		System.out.println("Checked " + moves + " moves and undos in "
+				+ games + " games with seed " + seed);
+	}
+
+	/**
+	 * Plays a game with the edges taken in a random order, taking back a
+	 * few moves now and then, and checks the board after every move and
+	 * every undo
+	 * @param rows the number of rows of boxes
+	 * @param cols the number of columns of boxes
+	 * @param random the random numbers to choose the moves with
+	 * @return the number of moves made and undone
+	 */
+	public static int playGame(int rows, int cols, Random random)
+	{
+		BitBoard board = new BitBoard(rows, cols);
+		int[][] boxEdges = boxEdges(board);
+		long[] keys = keys(rows, cols);
+		boolean[] taken = new boolean[board.edgeCount()];
+		int[] owners = new int[board.boxCount()];
+		if (board.undo() != -1)
+			throw new IllegalStateException("A move was undone on an empty "
+					+ "board");
+
+		// The edges taken and the player who took each
+		int[] edges = new int[taken.length];
+		int[] players = new int[taken.length];
+		int made = 0;
+		int checked = 0;
+		int player = 1;
+		while (made < taken.length)
+		{
+			// Take back up to three moves one time in four
+			int undos = made > 0 && random.nextInt(4) == 0 ? 1 + random
+					.nextInt(Math.min(made, 3)) : 0;
+			for (int undo = 0; undo < undos; undo++)
+			{
+				made--;
+				int edge = edges[made];
+				int undone = board.undo();
+				if (undone != edge)
+					throw new IllegalStateException("Undo gave back edge "
+							+ undone + " instead of " + edge);
+				taken[edge] = false;
+				for (int box = 0; box < owners.length; box++)
+					if (sides(boxEdges[box], taken) < 4)
+						owners[box] = 0;
+				player = players[made];
+				check(board, boxEdges, keys, taken, owners, player);
+				checked++;
+			}
+
+			// Take a random free edge
+			int skip = random.nextInt(taken.length - made);
+			int edge = 0;
+			while (taken[edge] || skip-- > 0)
+				edge++;
+			edges[made] = edge;
+			players[made] = player;
+			made++;
+			taken[edge] = true;
+			int filled = 0;
+			for (int box = 0; box < owners.length; box++)
+				if (owners[box] == 0 && sides(boxEdges[box], taken) == 4)
+				{
+					owners[box] = player;
+					filled++;
+				}
+			int played = board.play(edge, player);
+			if (played != filled)
+				throw new IllegalStateException("Taking edge " + edge
+						+ " filled " + played + " boxes instead of " + filled);
+			if (board.play(edge, player) != -1)
+				throw new IllegalStateException("Edge " + edge
+						+ " was taken twice");
+			// A player who fills a box moves again
+			if (filled == 0)
+				player = -player;
+			check(board, boxEdges, keys, taken, owners, player);
+			checked++;
+		}
+		return checked;
+	}
+
+	/**
+	 * Compares a board with a count from scratch of the edges taken
+	 * @param board the board to check
+	 * @param boxEdges the edges around each box
+	 * @param keys the hash keys of the edges and the villain's turn
+	 * @param taken whether each edge has been taken
+	 * @param owners the player that filled each box, or 0
+	 * @param player the player whose turn it is
+	 */
+	public static void check(BitBoard board, int[][] boxEdges, long[] keys,
+			boolean[] taken, int[] owners, int player)
+	{
+		if (board.toMove() != player)
+			throw new IllegalStateException("It is the turn of "
+					+ board.toMove() + " instead of " + player);
+		long hash = player == -1 ? keys[taken.length] : 0;
+		for (int edge = 0; edge < taken.length; edge++)
+		{
+			if (board.isTaken(edge) != taken[edge])
+				throw new IllegalStateException("Edge " + edge + " is "
+						+ (taken[edge] ? "" : "not ") + "taken");
+			if (taken[edge])
+				hash ^= keys[edge];
+		}
+		if (board.hash() != hash)
+			throw new IllegalStateException("The hash does not match the "
+					+ "edges taken");
+		int[] scores = new int[3];
+		for (int box = 0; box < owners.length; box++)
+		{
+			scores[owners[box] + 1]++;
+			if (board.sidesTaken(box) != sides(boxEdges[box], taken))
+				throw new IllegalStateException("Box " + box + " has "
+						+ board.sidesTaken(box) + " sides taken instead of "
+						+ sides(boxEdges[box], taken));
+			if (board.owner(box) != owners[box])
+				throw new IllegalStateException("Box " + box
+						+ " was filled by " + board.owner(box) + " instead of "
+						+ owners[box]);
+		}
+		if (board.score(1) != scores[2] || board.score(-1) != scores[0])
+			throw new IllegalStateException("The score is " + board.score(1)
+					+ ":" + board.score(-1) + " instead of " + scores[2] + ":"
+					+ scores[0]);
+		if (board.filledBoxes() != scores[0] + scores[2]
+				|| board.isFull() != (scores[1] == 0))
+			throw new IllegalStateException(board.filledBoxes()
+					+ " boxes are filled instead of " + (scores[0] + scores[2]));
+
+		// Walk through the free edges
+		int free = board.nextFreeEdge(0);
+		for (int edge = 0; edge < taken.length; edge++)
+			if (!taken[edge])
+			{
+				if (free != edge)
+					throw new IllegalStateException("The next free edge is "
+							+ free + " instead of " + edge);
+				free = board.nextFreeEdge(edge + 1);
+			}
+		if (free != -1)
+			throw new IllegalStateException("Edge " + free
+					+ " is free after the last free edge");
+		boolean[] freeEdges = new boolean[taken.length];
+		for (int edge = 0; edge < taken.length; edge++)
+			freeEdges[edge] = !taken[edge];
+		checkList("free edges", board.freeEdges(), freeEdges);
+		boolean[] capturable = new boolean[owners.length];
+		for (int box = 0; box < owners.length; box++)
+			capturable[box] = sides(boxEdges[box], taken) == 3;
+		checkList("capturable boxes", board.capturableBoxes(), capturable);
+		boolean[] safe = new boolean[taken.length];
+		for (int edge = 0; edge < taken.length; edge++)
+		{
+			int before = board.boxBefore(edge);
+			int after = board.boxAfter(edge);
+			safe[edge] = !taken[edge]
+					&& (before < 0 || sides(boxEdges[before], taken) < 2)
+					&& (after < 0 || sides(boxEdges[after], taken) < 2);
+		}
+		checkList("safe edges", board.safeEdges(), safe);
+		checkChains(board, boxEdges, taken);
+	}
+
+	/**
+	 * Compares the chains of a board with the chains found from scratch.
+	 * Boxes with two sides taken that share a free edge are in the same
+	 * chain, and a chain is a loop when every box in it leads on to two
+	 * others.
+	 * @param board the board to check
+	 * @param boxEdges the edges around each box
+	 * @param taken whether each edge has been taken
+	 */
+	private static void checkChains(BitBoard board, int[][] boxEdges,
+			boolean[] taken)
+	{
+		ChainTracker tracker = board.chainTracker();
+		boolean[] first = new boolean[boxEdges.length];
+		boolean[] isChain = new boolean[boxEdges.length];
+		int[] stack = new int[boxEdges.length];
+		int[] members = new int[boxEdges.length];
+		int singles = 0;
+		int doubles = 0;
+		int longChains = 0;
+		int loops = 0;
+		int longBoxes = 0;
+		for (int start = 0; start < boxEdges.length; start++)
+		{
+			if (sides(boxEdges[start], taken) != 2 || isChain[start])
+				continue;
+
+			// Gather the boxes joined to this one, which is the smallest
+			isChain[start] = true;
+			first[start] = true;
+			int length = 0;
+			stack[0] = start;
+			int size = 1;
+			boolean loop = true;
+			while (size > 0)
+			{
+				int box = stack[--size];
+				members[length++] = box;
+				int joined = 0;
+				for (int side = 0; side < 4; side++)
+				{
+					int edge = boxEdges[box][side];
+					int next = board.boxBefore(edge) == box ? board
+							.boxAfter(edge) : board.boxBefore(edge);
+					if (taken[edge] || next < 0
+							|| sides(boxEdges[next], taken) != 2)
+						continue;
+					joined++;
+					if (!isChain[next])
+					{
+						isChain[next] = true;
+						stack[size++] = next;
+					}
+				}
+				if (joined < 2)
+					loop = false;
+			}
+			for (int index = 0; index < length; index++)
+			{
+				int box = members[index];
+				if (tracker.chainLength(box) != length
+						|| tracker.isLoop(box) != loop)
+					throw new IllegalStateException("Box " + box + " is in a "
+							+ (tracker.isLoop(box) ? "loop" : "chain")
+							+ " of " + tracker.chainLength(box)
+							+ " instead of a " + (loop ? "loop" : "chain")
+							+ " of " + length);
+			}
+			if (tracker.length(start) != length || tracker.loop(start) != loop)
+				throw new IllegalStateException("The chain of box " + start
+						+ " has the wrong length");
+			if (loop)
+				loops++;
+			else if (length >= 3)
+				longChains++;
+			else if (length == 2)
+				doubles++;
+			else
+				singles++;
+			if (loop || length >= 3)
+				longBoxes += length;
+		}
+		if (tracker.shortChains(1) != singles
+				|| tracker.shortChains(2) != doubles
+				|| tracker.longChains() != longChains || tracker.loops() != loops
+				|| tracker.longBoxes() != longBoxes)
+			throw new IllegalStateException("The chains are counted as "
+					+ tracker.shortChains(1) + ", " + tracker.shortChains(2)
+					+ ", " + tracker.longChains() + ", " + tracker.loops()
+					+ " and " + tracker.longBoxes() + " instead of " + singles
+					+ ", " + doubles + ", " + longChains + ", " + loops
+					+ " and " + longBoxes);
+		for (int box = 0; box < boxEdges.length; box++)
+			if (!isChain[box] && tracker.chainLength(box) != 0)
+				throw new IllegalStateException("Box " + box
+						+ " is in a chain of " + tracker.chainLength(box)
+						+ " instead of none");
+		checkList("chains", tracker.chains(), first);
+	}
+
+
+	/**
+	 * Checks that a list holds exactly the ids it should, each once
+	 * @param name what the list holds
+	 * @param list the list to check
+	 * @param expected whether each id should be in the list
+	 */
+	private static void checkList(String name, MoveList list,
+			boolean[] expected)
+	{
+		boolean[] found = new boolean[expected.length];
+		for (int index = 0; index < list.size(); index++)
+		{
+			int id = list.get(index);
+			if (id < 0 || id >= expected.length || !expected[id] || found[id])
+				throw new IllegalStateException("The " + name
+						+ " should not have " + id);
+			found[id] = true;
+		}
+		for (int id = 0; id < expected.length; id++)
+			if (expected[id] != found[id] || expected[id] != list.contains(id))
+				throw new IllegalStateException("The " + name + " should have "
+						+ id);
+	}
+
+	/**
+	 * Lists the edges around each box and checks that the boxes on both
+	 * sides of every edge agree with them
+	 * @param board the board
+	 * @return the four edges around each box, top, bottom, left and right
+	 */
+	private static int[][] boxEdges(BitBoard board)
+	{
+		int[][] boxEdges = new int[board.boxCount()][4];
+		int[] boxesOf = new int[board.edgeCount()];
+		for (int box = 0; box < boxEdges.length; box++)
+			for (int side = Box.TOP; side <= Box.RIGHT; side++)
+			{
+				int edge = board.edge(box / board.cols(), box % board.cols(),
+						side);
+				boxEdges[box][side - Box.TOP] = edge;
+				boxesOf[edge]++;
+				int expected = side == Box.TOP || side == Box.LEFT ? board
+						.boxAfter(edge) : board.boxBefore(edge);
+				if (expected != box)
+					throw new IllegalStateException("Edge " + edge
+							+ " is not next to box " + box);
+				if (board.edgeOf(board.move(edge)) != edge)
+					throw new IllegalStateException("Edge " + edge
+							+ " is not the edge of its move");
+			}
+		for (int edge = 0; edge < boxesOf.length; edge++)
+		{
+			int boxes = (board.boxBefore(edge) >= 0 ? 1 : 0)
+					+ (board.boxAfter(edge) >= 0 ? 1 : 0);
+			if (boxes != boxesOf[edge])
+				throw new IllegalStateException("Edge " + edge + " is next to "
+						+ boxes + " boxes instead of " + boxesOf[edge]);
+		}
+		return boxEdges;
+	}
+
+	/**
+	 * Finds the hash key of every edge of a board, each from an empty board
+	 * with only that edge taken, and the key for the villain's turn
+	 * @param rows the number of rows of boxes
+	 * @param cols the number of columns of boxes
+	 * @return the key of each edge followed by the key for the villain's turn
+	 */
+	private static long[] keys(int rows, int cols)
+	{
+		BitBoard board = new BitBoard(rows, cols);
+		if (board.hash() != 0)
+			throw new IllegalStateException("An empty board has a hash");
+		board.setToMove(-1);
+		long[] keys = new long[board.edgeCount() + 1];
+		keys[keys.length - 1] = board.hash();
+		for (int edge = 0; edge < board.edgeCount(); edge++)
+		{
+			// Taking one edge fills no box, so the turn passes back to the
+			// superhero
+			board.play(edge, -1);
+			keys[edge] = board.hash();
+			board.undo();
+		}
+		return keys;
+	}
+
+	/**
+	 * Counts the sides of a box that have been taken
+	 * @param edges the edges around the box
+	 * @param taken whether each edge has been taken
+	 * @return the number of sides taken
+	 */
+	private static int sides(int[] edges, boolean[] taken)
+	{
+		int sides = 0;
+		for (int index = 0; index < edges.length; index++)
+			if (taken[edges[index]])
+				sides++;
+		return sides;
+	}
+}
@@ -0,0 +1,200 @@
+import java.awt.AlphaComposite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * Keeps a picture of part of a board so it does not have to be drawn box by
+ * box every time the screen is painted. The dots and every side and box are
+ * drawn once into an image that is see-through between the lines. After
+ * that only the sides taken since the last time, and the boxes they filled,
+ * are drawn into it, found from the moves the BitBoard remembers. Painting
+ * the board is then one copy of the image. The picture is drawn again from
+ * the start if it is asked to show a different board or moves were taken
+ * back. Includes a constructor to make a picture of some rows and columns of
+ * boxes, draw to bring the picture up to date and paint it, and width and
+ * height to return its size.
+ */
+public class BoardLayer
+{
+	private final int firstRow;
+	private final int firstCol;
+	private final int rows;
+	private final int cols;
+	private final int spacing;
+	private final BufferedImage image;
+	// The board that is drawn, how many of its moves are drawn and the last
+	// of them
+	private BitBoard board;
+	private int movesDrawn;
+	private int lastEdge;
+
+	/**
+	 * Constructs a picture of some rows and columns of boxes, with the sides
+	 * around them
+	 * @param firstRow the top row of boxes
+	 * @param firstCol the left column of boxes
+	 * @param rows the number of rows of boxes
+	 * @param cols the number of columns of boxes
+	 * @param spacing the distance between dots
+	 */
+	public BoardLayer(int firstRow, int firstCol, int rows, int cols,
+			int spacing)
+	{
+		this.firstRow = firstRow;
+		this.firstCol = firstCol;
+		this.rows = rows;
+		this.cols = cols;
+		this.spacing = spacing;
+		int width = cols * spacing + Box.dotWidth(spacing);
+		int height = rows * spacing + Box.dotWidth(spacing);
+		if (GraphicsEnvironment.isHeadless())
+			image = new BufferedImage(width, height,
+					BufferedImage.TYPE_INT_ARGB);
+		else
+			image = GraphicsEnvironment.getLocalGraphicsEnvironment()
+					.getDefaultScreenDevice().getDefaultConfiguration()
+					.createCompatibleImage(width, height,
+							Transparency.TRANSLUCENT);
+	}
+
+	/**
+	 * Brings the picture up to date with a board and paints it
+	 * @param g the graphics context to paint
+	 * @param board the board to show
+	 * @param x the x coordinate of the top left dot of the picture
+	 * @param y the y coordinate of the top left dot of the picture
+	 */
+	public void draw(Graphics g, BitBoard board, int x, int y)
+	{
+		update(board);
+		g.drawImage(image, x, y, null);
+	}
+
+	/**
+	 * Returns the width of the picture
+	 * @return the width in pixels
+	 */
+	public int width()
+	{
+		return image.getWidth();
+	}
+
+	/**
+	 * Returns the height of the picture
+	 * @return the height in pixels
+	 */
+	public int height()
+	{
+		return image.getHeight();
+	}
+
+	/**
+	 * Draws the moves made since the picture was last brought up to date,
+	 * or the whole picture again if the moves drawn are no longer the start
+	 * of the board's moves
+	 * @param board the board to show
+	 */
+	private void update(BitBoard board)
+	{
+		int movesMade = board.movesMade();
+		if (board != this.board || movesMade < movesDrawn || movesDrawn > 0
+				&& board.moveAt(movesDrawn - 1) != lastEdge)
+		{
+			redraw(board);
+			return;
+		}
+		if (movesMade == movesDrawn)
+			return;
+		Graphics2D g = image.createGraphics();
+		for (int index = movesDrawn; index < movesMade; index++)
+		{
+			int edge = board.moveAt(index);
+			drawEdge(g, board, edge);
+			fill(g, board, board.boxBefore(edge));
+			fill(g, board, board.boxAfter(edge));
+		}
+		g.dispose();
+		remember(board);
+	}
+
+	/**
+	 * Clears the picture and draws every box in it
+	 * @param board the board to show
+	 */
+	private void redraw(BitBoard board)
+	{
+		Graphics2D g = image.createGraphics();
+		g.setComposite(AlphaComposite.Clear);
+		g.fillRect(0, 0, image.getWidth(), image.getHeight());
+		g.setComposite(AlphaComposite.SrcOver);
+		for (int row = 0; row < rows; row++)
+			for (int col = 0; col < cols; col++)
+				Box.draw(g, board, firstRow + row, firstCol + col, col
+						* spacing, row * spacing, spacing);
+		g.dispose();
+		remember(board);
+	}
+
+	/**
+	 * Remembers which moves of a board are drawn
+	 * @param board the board that was drawn
+	 */
+	private void remember(BitBoard board)
+	{
+		this.board = board;
+		movesDrawn = board.movesMade();
+		lastEdge = movesDrawn > 0 ? board.moveAt(movesDrawn - 1) : -1;
+	}
+
+	/**
+	 * Draws a side if it is in the picture
+	 * @param g the graphics context of the picture
+	 * @param board the board the side is on
+	 * @param edge the side
+	 */
+	private void drawEdge(Graphics g, BitBoard board, int edge)
+	{
+		boolean horizontal = board.isHorizontal(edge);
+		int row;
+		int col;
+		if (horizontal)
+		{
+			row = edge / board.cols();
+			col = edge % board.cols();
+		}
+		else
+		{
+			int vertical = edge - (board.rows() + 1) * board.cols();
+			row = vertical / (board.cols() + 1);
+			col = vertical % (board.cols() + 1);
+		}
+		row -= firstRow;
+		col -= firstCol;
+		// A side on the edge of the picture is one more row or column of
+		// dots
+		if (row < 0 || col < 0 || row > rows || col > cols || horizontal
+				&& col == cols || !horizontal && row == rows)
+			return;
+		Box.drawEdge(g, horizontal, col * spacing, row * spacing, spacing);
+	}
+
+	/**
+	 * Fills in a box if it is in the picture and has been filled
+	 * @param g the graphics context of the picture
+	 * @param board the board the box is on
+	 * @param box the box or -1 for none
+	 */
+	private void fill(Graphics g, BitBoard board, int box)
+	{
+		if (box < 0 || board.owner(box) == 0)
+			return;
+		int row = box / board.cols() - firstRow;
+		int col = box % board.cols() - firstCol;
+		if (row >= 0 && col >= 0 && row < rows && col < cols)
+			Box.fill(g, board.owner(box), col * spacing, row * spacing,
+					spacing);
+	}
+}
@@ -0,0 +1,289 @@
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shows a board in its area of the screen, zoomed in or out and moved
+ * around so that boards too big to fit can still be played. The board is
+ * split into square tiles of about the same number of pixels at any zoom,
+ * each kept as a BoardLayer, and only the tiles that can be seen in the part
+ * of the screen being painted are drawn, so painting takes about as long on
+ * a big board as on a small one. The tiles used least recently are thrown
+ * away once too many are kept, and all of them when the zoom changes. A
+ * board that fits starts out filling the area, the way an 8 by 8 board
+ * always has. Includes a constructor to show a board of some size, draw to
+ * draw the board, highlight to draw the last move made, clickedMove to find
+ * the move for a click, zoom and pan to change what is shown, and contains,
+ * area and spacing to return where and how big the board is shown.
+ */
+public class BoardView
+{
+	// The area of the screen the board is shown in
+	public final static int LEFT = 17;
+	public final static int TOP = 44;
+	public final static int SIZE = 8 * Box.SPACING
+			+ Box.dotWidth(Box.SPACING);
+
+	// The closest the dots can be when zoomed out on a board that does not
+	// fit, and the farthest apart they can be when zoomed in
+	private final static int MIN_SPACING = 20;
+	private final static int MAX_SPACING = Box.SPACING;
+
+	// About how many pixels wide a tile is, and the most tiles to keep
+	private final static int TILE_SIZE = 256;
+	private final static int MAX_TILES = 64;
+
+	private final int rows;
+	private final int cols;
+	private final int minSpacing;
+	private final Rectangle area;
+	private final LinkedHashMap<Integer, BoardLayer> tiles;
+	private int spacing;
+	private int tileBoxes;
+	// The pixel of the whole board shown at the top left of the area
+	private int offsetX;
+	private int offsetY;
+
+	/**
+	 * Constructs a view of a board of some size, zoomed out as far as it
+	 * can be and showing the top left of the board
+	 * @param rows the number of rows of boxes
+	 * @param cols the number of columns of boxes
+	 */
+	public BoardView(int rows, int cols)
+	{
+		this.rows = rows;
+		this.cols = cols;
+		int fitSpacing = Math.min(Box.SPACING, 8 * Box.SPACING
+				/ Math.max(rows, cols));
+		minSpacing = Math.max(fitSpacing, MIN_SPACING);
+		area = new Rectangle(LEFT, TOP, SIZE, SIZE);
+		tiles = new LinkedHashMap<Integer, BoardLayer>(MAX_TILES, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(
+					Map.Entry<Integer, BoardLayer> eldest)
+			{
+				return size() > MAX_TILES;
+			}
+		};
+		setSpacing(minSpacing);
+	}
+
+	/**
+	 * Draws the part of the board that is shown and can be seen in the part
+	 * of the screen being painted
+	 * @param g the graphics context to paint
+	 * @param board the board to draw
+	 */
+	public void draw(Graphics g, BitBoard board)
+	{
+		Rectangle visible = area;
+		Rectangle clip = g.getClipBounds();
+		if (clip != null)
+			visible = area.intersection(clip);
+		if (visible.isEmpty())
+			return;
+		Shape oldClip = g.getClip();
+		g.clipRect(area.x, area.y, area.width, area.height);
+
+		// The pixels of the whole board that can be seen
+		int left = visible.x - LEFT + offsetX;
+		int top = visible.y - TOP + offsetY;
+		int right = left + visible.width;
+		int bottom = top + visible.height;
+		int tilePixels = tileBoxes * spacing;
+		int width = Box.dotWidth(spacing);
+		int firstRow = Math.max(0, (top - width) / tilePixels);
+		int firstCol = Math.max(0, (left - width) / tilePixels);
+		int lastRow = Math.min((rows - 1) / tileBoxes, (bottom - 1)
+				/ tilePixels);
+		int lastCol = Math.min((cols - 1) / tileBoxes, (right - 1)
+				/ tilePixels);
+		for (int row = firstRow; row <= lastRow; row++)
+			for (int col = firstCol; col <= lastCol; col++)
+				tile(row, col).draw(g, board, LEFT - offsetX + col
+						* tilePixels, TOP - offsetY + row * tilePixels);
+		g.setClip(oldClip);
+	}
+
+	/**
+	 * Highlights a move made on the board if it is shown
+	 * @param g the graphics context to paint
+	 * @param move the packed move
+	 */
+	public void highlight(Graphics g, int move)
+	{
+		Shape oldClip = g.getClip();
+		g.clipRect(area.x, area.y, area.width, area.height);
+		Box.drawLine(g, LEFT - offsetX + spacing * Move.col(move), TOP
+				- offsetY + spacing * Move.row(move), Move.side(move),
+				spacing);
+		g.setClip(oldClip);
+	}
+
+	/**
+	 * Finds the move for a click on the side of a Box. The click is
+	 * matched to the closest line between two dots.
+	 * @param x the x coordinate of the click
+	 * @param y the y coordinate of the click
+	 * @return the packed move or Move.NONE if the click was not on a side
+	 */
+	public int clickedMove(int x, int y)
+	{
+		if (!contains(x, y))
+			return Move.NONE;
+		int half = Box.dotWidth(spacing) / 2;
+		// The position of the click from the centre of the top left dot
+		int dotX = x - LEFT + offsetX - half;
+		int dotY = y - TOP + offsetY - half;
+		if (dotX < -spacing / 2 || dotY < -spacing / 2)
+			return Move.NONE;
+		// The closest row and column of dots
+		int lineRow = (dotY + spacing / 2) / spacing;
+		int lineCol = (dotX + spacing / 2) / spacing;
+		int distanceY = Math.abs(dotY - lineRow * spacing);
+		int distanceX = Math.abs(dotX - lineCol * spacing);
+		int tolerance = Box.dotWidth(spacing);
+
+		// Closer to a horizontal line
+		if (distanceY <= distanceX)
+		{
+			int col = dotX / spacing;
+			if (distanceY > tolerance || dotX < 0 || col >= cols
+					|| lineRow > rows)
+				return Move.NONE;
+			if (lineRow == rows)
+				return Move.encode(rows - 1, col, Box.BOTTOM);
+			return Move.encode(lineRow, col, Box.TOP);
+		}
+		// Closer to a vertical line
+		int row = dotY / spacing;
+		if (distanceX > tolerance || dotY < 0 || row >= rows
+				|| lineCol > cols)
+			return Move.NONE;
+		if (lineCol == cols)
+			return Move.encode(row, cols - 1, Box.RIGHT);
+		return Move.encode(row, lineCol, Box.LEFT);
+	}
+
+	/**
+	 * Zooms in or out, keeping the point under the mouse in the same place
+	 * @param steps how far to zoom, in for more than 0 and out for less
+	 * @param x the x coordinate of the mouse
+	 * @param y the y coordinate of the mouse
+	 * @return true if the zoom changed
+	 */
+	public boolean zoom(int steps, int x, int y)
+	{
+		int newSpacing = spacing;
+		for (int step = 0; step < Math.abs(steps); step++)
+			if (steps > 0)
+				newSpacing += Math.max(1, newSpacing / 8);
+			else
+				newSpacing -= Math.max(1, newSpacing / 9);
+		newSpacing = Math.max(minSpacing, Math.min(MAX_SPACING, newSpacing));
+		if (newSpacing == spacing)
+			return false;
+		long pointX = x - LEFT + offsetX;
+		long pointY = y - TOP + offsetY;
+		offsetX = (int) (pointX * newSpacing / spacing) - (x - LEFT);
+		offsetY = (int) (pointY * newSpacing / spacing) - (y - TOP);
+		setSpacing(newSpacing);
+		return true;
+	}
+
+	/**
+	 * Moves the board across the screen
+	 * @param dx how far to move the board right in pixels
+	 * @param dy how far to move the board down in pixels
+	 * @return true if the part of the board shown changed
+	 */
+	public boolean pan(int dx, int dy)
+	{
+		int oldX = offsetX;
+		int oldY = offsetY;
+		offsetX -= dx;
+		offsetY -= dy;
+		keepInside();
+		return offsetX != oldX || offsetY != oldY;
+	}
+
+	/**
+	 * Checks to see whether a point is in the area the board is shown in
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return true if the point is in the area
+	 */
+	public boolean contains(int x, int y)
+	{
+		return area.contains(x, y);
+	}
+
+	/**
+	 * Returns the area of the screen the board is shown in
+	 * @return a copy of the area
+	 */
+	public Rectangle area()
+	{
+		return new Rectangle(area);
+	}
+
+	/**
+	 * Returns the distance between the dots at the current zoom
+	 * @return the distance between dots
+	 */
+	public int spacing()
+	{
+		return spacing;
+	}
+
+	/**
+	 * Changes the distance between the dots, throwing away the tiles drawn
+	 * at the old distance
+	 * @param newSpacing the distance between dots
+	 */
+	private void setSpacing(int newSpacing)
+	{
+		spacing = newSpacing;
+		tileBoxes = Math.max(1, TILE_SIZE / spacing);
+		tiles.clear();
+		keepInside();
+	}
+
+	/**
+	 * Keeps the part of the board shown from going past its edges
+	 */
+	private void keepInside()
+	{
+		int width = cols * spacing + Box.dotWidth(spacing);
+		int height = rows * spacing + Box.dotWidth(spacing);
+		offsetX = Math.max(0, Math.min(offsetX, width - SIZE));
+		offsetY = Math.max(0, Math.min(offsetY, height - SIZE));
+	}
+
+	/**
+	 * Returns a tile, making it if it is not kept
+	 * @param row the row of the tile
+	 * @param col the column of the tile
+	 * @return the tile
+	 */
+	private BoardLayer tile(int row, int col)
+	{
+		int tilesAcross = (cols + tileBoxes - 1) / tileBoxes;
+		Integer key = row * tilesAcross + col;
+		BoardLayer tile = tiles.get(key);
+		if (tile == null)
+		{
+			int firstRow = row * tileBoxes;
+			int firstCol = col * tileBoxes;
+			tile = new BoardLayer(firstRow, firstCol, Math.min(tileBoxes, rows
+					- firstRow), Math.min(tileBoxes, cols - firstCol), spacing);
+			tiles.put(key, tile);
+		}
+		return tile;
+	}
+}
@@ -0,0 +1,77 @@
+/**
+ * Chooses the computer's first moves from the OpeningBook for the size of the
+ * board, and leaves the rest of the game to another Strategy, or to the
+ * simple rules of the Player if there is no other Strategy. The book is
+ * opened the first time a board of its size is played on and kept until a
+ * board of another size is. Includes a constructor to put the books in front
+ * of another Strategy, chooseMove to pick a move, stop to stop the other
+ * Strategy, and close to let go of its threads.
+ */
+public class BookStrategy implements Strategy
+{
+	// The Strategy used once the book runs out, or null
+	private final Strategy fallback;
+
+	// The book for the size of board last played on, or null if there is no
+	// book for that size
+	private OpeningBook book;
+	private int bookRows;
+	private int bookCols;
+
+	/**
+	 * Constructs a Strategy that plays from the book for the size of the
+	 * board if there is one, and otherwise uses another Strategy
+	 * @param fallback the Strategy to use when the book has no move, or null
+	 * 			to leave the move to the simple rules of the Player
+	 */
+	public BookStrategy(Strategy fallback)
+	{
+		this.fallback = fallback;
+	}
+
+	/**
+	 * Chooses the move from the book for the size of the board if the
+	 * position is in it, otherwise asks the other Strategy
+	 * @param grid the board the game is on
+	 * @param player 1 for the superhero or -1 for the villain
+	 * @return the packed move to make or Move.NONE if every box has been
+	 * 			filled or there is no other Strategy and the book has no move
+	 */
+	public int chooseMove(Grid grid, int player)
+	{
+		BitBoard board = grid.getState();
+		if (bookRows != board.rows() || bookCols != board.cols())
+		{
+			bookRows = board.rows();
+			bookCols = board.cols();
+			book = OpeningBook.open(OpeningBook.fileName(bookRows, bookCols));
+		}
+		if (book != null)
+		{
+			int edge = book.lookUp(board);
+			if (edge >= 0)
+				return board.move(edge);
+		}
+		if (fallback == null)
+			return Move.NONE;
+		return fallback.chooseMove(grid, player);
+	}
+
+	/**
+	 * Stops the other Strategy if it is choosing a move in another thread
+	 */
+	public void stop()
+	{
+		if (fallback != null)
+			fallback.stop();
+	}
+
+	/**
+	 * Shuts down the threads of the other Strategy
+	 */
+	public void close()
+	{
+		if (fallback != null)
+			fallback.close();
+	}
+}
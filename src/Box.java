@@ -1,286 +1,171 @@
 import java.awt.Color;
 import java.awt.Graphics;
-import java.awt.Point;
-import java.io.Serializable;
 
 /**
- * Keeps track of Box information including whether a certain side
- * was clicked, position, how many sides were clicked, and whether
- * the box has been filled or not. Includes a constructor that creates
- * a default Box and another constructor to copy another Box object.
- * Includes isBoxFilled to check whether the box has been filled and to
- * update it when it is, boxFilled to check whether the box has been filled,
- * sidesClicked to return the number of sides clicked, sideToTake to return
- * an available side, hasSideBeenTaken to check whether the side has already
- * been clicked, playerFilledBox to check which player filled in the box,
- * setPosition to set the position of the box, draw to draw the box, drawLine
- * to highlight the player's last move, sideClicked to update the box when
- * a side has been clicked.
+ * Draws the Boxes of the grid. The state of each Box (which sides have been
+ * clicked and which player filled it) is kept in the BitBoard, this class
+ * only knows how to paint it. Boxes are drawn 75 pixels apart on an 8 by 8
+ * grid and closer together on bigger grids. Includes the constants used for
+ * the sides of a Box, draw to draw a box, drawEdge and fill to draw one
+ * side or the inside of a box on a board that is already drawn, and drawLine
+ * to highlight the player's last move.
  * @author Stephanie Giang, Sherry Hua, Zoe Zou
  * @version June 11, 2015
  */
-public class Box implements Serializable
+public class Box
 {
-	private boolean left;
-	private boolean right;
-	private boolean top;
-	private boolean bottom;
-	private int playerFilled;
-	Point position;
-	private int sidesClicked;
+	// The sides of a Box
+	public final static int TOP = 1;
+	public final static int BOTTOM = 2;
+	public final static int LEFT = 3;
+	public final static int RIGHT = 4;
 
-	private final static int SPACING = 75;
+	// The spacing between dots and the width of a dot and line on an 8 by 8
+	// grid
+	public final static int SPACING = 75;
 	private final static int WIDTH = 10;
 
-	/**
-	 * Creates the box object
-	 */
-	public Box()
-	{
-		this.left = false;
-		this.right = false;
-		this.top = false;
-		this.bottom = false;
-		sidesClicked = 0;
-		playerFilled = 0;
-	}
-	
-	public Box (Box otherBox){
-		this.left = otherBox.left;
-		this.right = otherBox.right;
-		this.top = otherBox.top;
-		this.bottom = otherBox.bottom;
-	}
+	// The colours of the sides, the boxes filled by each player and the
+	// highlighted move
+	private final static Color LINE_COLOR = new Color(60, 60, 60);
+	private final static Color SUPERHERO_COLOR = new Color(225, 0, 0);
+	private final static Color VILLAIN_COLOR = new Color(72, 61, 139);
+	private final static Color HIGHLIGHT_COLOR = new Color(125, 130, 63);
 
 	/**
-	 * Checks to see if the Box has been filled, if it is update the Box
-	 * @param player the player that has clicked the box
-	 * @return true if the box has been filled false if the box has not been
-	 *         filled
+	 * Finds the width of the dots and lines for a spacing between dots
+	 * @param spacing the distance between dots
+	 * @return the width of a dot
 	 */
-	public boolean isBoxFilled(int player)
+	public static int dotWidth(int spacing)
 	{
-		if (left == true && right == true && top == true && bottom == true)
-		{
-			playerFilled = player;
-			return true;
-		}
-		return false;
+		return Math.max(2, spacing * WIDTH / SPACING);
 	}
 
 	/**
-	 * Checks to see if the Box has been filled already been filled
-	 * @return true if the box has been filled
-	 * 			false if the box has not been filled
-	 */
-	public boolean boxFilled ()
-	{
-		if (left == true && right == true && top == true && bottom == true)
-			return true;
-		return false;
-	}
-	
-	/**
-	 * Checks to see how many sides of the box has been clicked
-	 * @return the number of sides that have been clicked in a
-	 * 			Box
+	 * Draws the 4 dots for each corner of the box, also draws a line if the side has been
+	 * clicked, and fills in the box if the box has been filled.
+	 * @param g the graphics context to paint
+	 * @param board the board that holds the box
+	 * @param row the row of the box
+	 * @param col the column of the box
+	 * @param x the x coordinate of the top left corner of the box
+	 * @param y the y coordinate of the top left corner of the box
+	 * @param spacing the distance between dots
 	 */
-	public int sidesClicked()
+	public static void draw(Graphics g, BitBoard board, int row, int col,
+			int x, int y, int spacing)
 	{
-		return this.sidesClicked;
-	}
+		int width = dotWidth(spacing);
+		// Draws the lines for if clicked
+		g.setColor(LINE_COLOR);
+		if (board.isSideTaken(row, col, TOP))
+			g.fillRect(x, y, spacing + width, width);
+		if (board.isSideTaken(row, col, BOTTOM))
+			g.fillRect(x, y + spacing, spacing + width, width);
+		if (board.isSideTaken(row, col, LEFT))
+			g.fillRect(x, y, width, spacing + width);
+		if (board.isSideTaken(row, col, RIGHT))
+			g.fillRect(x + spacing, y, width, spacing + width);
 
-	/**
-	 * Checks to see which side is available to click.
-	 * @return 1 if the top side is available
-	 * 			2 if the bottom side is available
-	 * 			3 if the left side is available
-	 * 			4 if the right side is available
-	 * 			0 if no sides are available
-	 */
-	public int sideToTake()
-	{
-		if (!this.top)
-			return 1;
-		if (!this.bottom)
-			return 2;
-		if (!this.left)
-			return 3;
-		if (!this.right)
-			return 4;
-		return 0;
-	}
+		// Draw the dots
+		g.setColor(Color.BLACK);
+		g.fillOval(x, y, width, width);
+		g.fillOval(x + spacing, y, width, width);
+		g.fillOval(x, y + spacing, width, width);
+		g.fillOval(x + spacing, y + spacing, width, width);
 
-	/**
-	 * Checks to see whether a certain side of the box has been
-	 * taken/clicked
-	 * @param side the side to check
-	 * @return true if the side has been taken
-	 * 			false if the side has not been taken
-	 */
-	public boolean hasSideBeenTaken(int side)
-	{
-		if (side == 1)
-			return top;
-		if (side == 2)
-			return bottom;
-		if (side == 3)
-			return left;
-		if (side == 4)
-			return right;
-		return false;
-	}
+		// Check to see if the box has been filled
+		int playerFilled = board.owner(row * board.cols() + col);
+		if (playerFilled != 0)
+			fill(g, playerFilled, x, y, spacing);
+		g.setColor(Color.BLACK);
 
-	/**
-	 * Checks to see which player has filled in the box
-	 * @return -1 if the villain has filled in the box
-	 * 			1 if the superhero has filled in the box
-	 * 			0 if no one filled in the box
-	 */
-	public int playerFilledBox()
-	{
-		return this.playerFilled;
 	}
 
 	/**
-	 * Sets the position of the Box
-	 * @param point the position to set the Box
+	 * Draws one side on a board that is already drawn, with the dots at its
+	 * ends drawn again on top. This looks the same as drawing the boxes next
+	 * to it again.
+	 * @param g the graphics context to paint
+	 * @param horizontal true for a side along a row of dots, false for a
+	 * 			side along a column
+	 * @param x the x coordinate of the dot at the top or left of the side
+	 * @param y the y coordinate of the dot at the top or left of the side
+	 * @param spacing the distance between dots
 	 */
-	public void setPosition(Point point)
+	public static void drawEdge(Graphics g, boolean horizontal, int x, int y,
+			int spacing)
 	{
-		this.position = point;
+		int width = dotWidth(spacing);
+		g.setColor(LINE_COLOR);
+		if (horizontal)
+			g.fillRect(x, y, spacing + width, width);
+		else
+			g.fillRect(x, y, width, spacing + width);
+		g.setColor(Color.BLACK);
+		g.fillOval(x, y, width, width);
+		if (horizontal)
+			g.fillOval(x + spacing, y, width, width);
+		else
+			g.fillOval(x, y + spacing, width, width);
 	}
-	
+
 	/**
-	 * Draws the 4 dots for each corner of the box, also draws a line if the side has been
-	 * clicked, and fills in the box if the box has been filled.
+	 * Fills in the inside of a box with the colour of a player
 	 * @param g the graphics context to paint
+	 * @param player the player who filled the box
+	 * @param x the x coordinate of the top left corner of the box
+	 * @param y the y coordinate of the top left corner of the box
+	 * @param spacing the distance between dots
 	 */
-	public void draw(Graphics g)
+	public static void fill(Graphics g, int player, int x, int y, int spacing)
 	{
-		// Draws the lines for if clicked
-		g.setColor(new Color(60, 60, 60));
-		if (top)
-			g.fillRect(position.x, position.y, SPACING + 10, WIDTH);
-		if (bottom)
-			g.fillRect(position.x, position.y + SPACING, SPACING + 10, WIDTH);
-		if (left)
-			g.fillRect(position.x, position.y, WIDTH, SPACING + 10);
-		if (right)
-			g.fillRect(position.x + SPACING, position.y, WIDTH, SPACING + 10);
-
-		// Draw the dots
-		g.setColor(Color.BLACK);
-		g.fillOval(position.x, position.y, WIDTH, WIDTH);
-		g.fillOval(position.x + SPACING, position.y, WIDTH, WIDTH);
-		g.fillOval(position.x, position.y + SPACING, WIDTH, WIDTH);
-		g.fillOval(position.x + SPACING, position.y + SPACING, WIDTH, WIDTH);
-
-		// Check to see if the box has been filled
-		if (playerFilled != 0)
-		{
-			if (playerFilled == 1)
-				g.setColor(new Color(225, 0, 0));
-			else
-				g.setColor(new Color(72, 61, 139));
-			g.fillRect(position.x + WIDTH, position.y + WIDTH, SPACING - 10,
-					SPACING - 10);
-		}
-		g.setColor(Color.BLACK);
-
+		int width = dotWidth(spacing);
+		g.setColor(player == 1 ? SUPERHERO_COLOR : VILLAIN_COLOR);
+		g.fillRect(x + width, y + width, spacing - width, spacing - width);
 	}
-	
+
 	/**
 	 * Highlights the last move that the computer has made
 	 * @param g the graphics context to paint
+	 * @param x the x coordinate of the top left corner of the box
+	 * @param y the y coordinate of the top left corner of the box
 	 * @param side the side that the computer has chosen
+	 * @param spacing the distance between dots
 	 */
-	public void drawLine (Graphics g, int side)
+	public static void drawLine (Graphics g, int x, int y, int side,
+			int spacing)
 	{
-		g.setColor(new Color(125, 130, 63));
-		if (side ==1)
+		int width = dotWidth(spacing);
+		g.setColor(HIGHLIGHT_COLOR);
+		if (side == TOP)
 		{
-			g.fillRect(position.x, position.y, SPACING + 10, WIDTH);
+			g.fillRect(x, y, spacing + width, width);
 			g.setColor(Color.BLACK);
-			g.fillOval(position.x, position.y, WIDTH, WIDTH);
-			g.fillOval(position.x + SPACING, position.y, WIDTH, WIDTH);
+			g.fillOval(x, y, width, width);
+			g.fillOval(x + spacing, y, width, width);
 		}
-		else if (side ==2)
+		else if (side == BOTTOM)
 		{
-			g.fillRect(position.x, position.y + SPACING, SPACING + 10, WIDTH);
+			g.fillRect(x, y + spacing, spacing + width, width);
 			g.setColor(Color.BLACK);
-			g.fillOval(position.x, position.y + SPACING, WIDTH, WIDTH);
-			g.fillOval(position.x + SPACING, position.y + SPACING, WIDTH, WIDTH);
+			g.fillOval(x, y + spacing, width, width);
+			g.fillOval(x + spacing, y + spacing, width, width);
 		}
-		else if (side ==3)
+		else if (side == LEFT)
 		{
-			g.fillRect(position.x, position.y, WIDTH, SPACING + 10);
+			g.fillRect(x, y, width, spacing + width);
 			g.setColor(Color.BLACK);
-			g.fillOval(position.x, position.y, WIDTH, WIDTH);
-			g.fillOval(position.x, position.y + SPACING, WIDTH, WIDTH);
+			g.fillOval(x, y, width, width);
+			g.fillOval(x, y + spacing, width, width);
 		}
 		else
 		{
-			g.fillRect(position.x + SPACING, position.y, WIDTH, SPACING + 10);
+			g.fillRect(x + spacing, y, width, spacing + width);
 			g.setColor(Color.BLACK);
-			g.fillOval(position.x + SPACING, position.y, WIDTH, WIDTH);
-			g.fillOval(position.x + SPACING, position.y + SPACING, WIDTH, WIDTH);
-		}
-	}
-
-	/**
-	 * Checks to see if the side is already clicked, if not makes the side true.
-	 * @param side the side to check
-	 * @return true if the side has not been clicked false if the side has
-	 *         already been clicked
-	 */
-	public boolean sideClicked(int side)
-	{
-		// 1 - top, 2 - bottom, 3 - left, 4 - right
-		if (side == 1)
-		{
-			// To check to see if the side was already clicked
-			if (this.top)
-				return false;
-			else
-			{
-				this.top = true;
-				sidesClicked++;
-			}
-		}
-		else if (side == 2)
-		{
-			// To check to see if the side was already clicked
-			if (this.bottom)
-				return false;
-			else
-			{
-				this.bottom = true;
-				sidesClicked++;
-			}
-		}
-		else if (side == 3)
-		{
-			// To check to see if the side was already clicked
-			if (this.left)
-				return false;
-			else
-			{
-				this.left = true;
-				sidesClicked++;
-			}
-		}
-		else
-		{
-			// To check to see if the side was already clicked
-			if (this.right)
-				return false;
-			else
-			{
-				this.right = true;
-				sidesClicked++;
-			}
+			g.fillOval(x + spacing, y, width, width);
+			g.fillOval(x + spacing, y + spacing, width, width);
 		}
-		return true;
 	}
 }
@@ -0,0 +1,458 @@
+import java.util.Arrays;
+
+/**
+ * Keeps track of the chains and loops of a BitBoard. A box with exactly two
+ * sides taken is part of a chain: taking either of its free sides lets the
+ * other player fill it and then every box joined to it through free sides
+ * that also has two sides taken. A chain that joins back onto itself is a
+ * loop. Every chain is known by the smallest box in it.
+ *
+ * The board only tells the tracker which boxes changed when an edge is taken
+ * or given back, so making and undoing moves stays cheap. The chains around
+ * those boxes are worked out again the next time they are asked for, which
+ * takes as long as the chains that changed. Includes chainOf, chainLength
+ * and isLoop to look at the chain a box is part of, chains, length and loop to walk
+ * through every chain, shortChains, longChains, loops and longBoxes to count
+ * the chains without walking through them, sacrificeCost to count the
+ * boxes given away by a move, and capturingMoves to list the moves worth
+ * making when a box can be filled.
+ */
+public class ChainTracker
+{
+	private final BitBoard board;
+	// The chain each box is part of, or -1
+	private final int[] chainOf;
+	// The length of each chain and whether it is a loop, by chain
+	private final int[] length;
+	private final boolean[] loop;
+	private final MoveList chains;
+	// Boxes that have changed since the chains were last worked out
+	private final MoveList changed;
+	// The number of chains of one and two boxes, of longer chains and of
+	// loops, and the number of boxes in the longer chains and loops
+	private int singles;
+	private int doubles;
+	private int longChains;
+	private int loops;
+	private int longBoxes;
+
+	// Scratch space used while working out the chains
+	private final int[] members;
+	private final int[] seeds;
+	private final int[] seen;
+	private int stamp;
+
+	/**
+	 * Constructs a tracker for a board that has no chains yet
+	 * @param board the board to keep track of
+	 */
+	ChainTracker(BitBoard board)
+	{
+		this.board = board;
+		int boxes = board.boxCount();
+		chainOf = new int[boxes];
+		Arrays.fill(chainOf, -1);
+		length = new int[boxes];
+		loop = new boolean[boxes];
+		chains = new MoveList(boxes);
+		changed = new MoveList(boxes);
+		members = new int[boxes];
+		seeds = new int[boxes];
+		seen = new int[boxes];
+		stamp = 0;
+	}
+
+	/**
+	 * Constructs a tracker for a board from the tracker of the board it was
+	 * copied from
+	 * @param board the copied board
+	 * @param other the tracker of the original board
+	 */
+	ChainTracker(BitBoard board, ChainTracker other)
+	{
+		this.board = board;
+		chainOf = other.chainOf.clone();
+		length = other.length.clone();
+		loop = other.loop.clone();
+		chains = new MoveList(other.chains);
+		changed = new MoveList(other.changed);
+		singles = other.singles;
+		doubles = other.doubles;
+		longChains = other.longChains;
+		loops = other.loops;
+		longBoxes = other.longBoxes;
+		members = new int[chainOf.length];
+		seeds = new int[chainOf.length];
+		seen = new int[chainOf.length];
+		stamp = 0;
+	}
+
+	/**
+	 * Remembers that the number of sides taken around a box has changed
+	 * @param box the box that changed
+	 */
+	void boxChanged(int box)
+	{
+		changed.add(box);
+	}
+
+	/**
+	 * Returns the chain or loop that a box is part of
+	 * @param box the box to check
+	 * @return the chain, known by its smallest box, or -1 if the box is not
+	 * 			in one
+	 */
+	public int chainOf(int box)
+	{
+		update();
+		return chainOf[box];
+	}
+
+	/**
+	 * Returns the length of the chain or loop that a box is part of
+	 * @param box the box to check
+	 * @return the number of boxes in the chain or 0 if the box is not in one
+	 */
+	public int chainLength(int box)
+	{
+		update();
+		int chain = chainOf[box];
+		return chain >= 0 ? length[chain] : 0;
+	}
+
+	/**
+	 * Checks to see if a box is part of a loop
+	 * @param box the box to check
+	 * @return true if the box is part of a loop
+	 */
+	public boolean isLoop(int box)
+	{
+		update();
+		int chain = chainOf[box];
+		return chain >= 0 && loop[chain];
+	}
+
+	/**
+	 * Returns every chain and loop on the board. The list must not be changed
+	 * by the caller.
+	 * @return the list of chains, each known by its smallest box
+	 */
+	public MoveList chains()
+	{
+		update();
+		return chains;
+	}
+
+	/**
+	 * Returns the length of a chain from chains()
+	 * @param chain the chain to check
+	 * @return the number of boxes in the chain
+	 */
+	public int length(int chain)
+	{
+		return length[chain];
+	}
+
+	/**
+	 * Checks to see if a chain from chains() is a loop
+	 * @param chain the chain to check
+	 * @return true if the chain is a loop
+	 */
+	public boolean loop(int chain)
+	{
+		return loop[chain];
+	}
+
+	/**
+	 * Counts the chains of one or two boxes
+	 * @param length 1 or 2
+	 * @return the number of chains of that length that are not loops
+	 */
+	public int shortChains(int length)
+	{
+		update();
+		return length == 1 ? singles : length == 2 ? doubles : 0;
+	}
+
+	/**
+	 * Counts the chains of three or more boxes that are not loops
+	 * @return the number of long chains
+	 */
+	public int longChains()
+	{
+		update();
+		return longChains;
+	}
+
+	/**
+	 * Counts the loops
+	 * @return the number of loops
+	 */
+	public int loops()
+	{
+		update();
+		return loops;
+	}
+
+	/**
+	 * Counts the boxes in long chains and loops
+	 * @return the number of boxes
+	 */
+	public int longBoxes()
+	{
+		update();
+		return longBoxes;
+	}
+
+	/**
+	 * Counts the boxes the other player can fill after a free edge is
+	 * taken, if they fill every box they can. Taking a side of a box with two
+	 * sides taken gives away its whole chain. Joining boxes that end up with
+	 * two sides taken may give away more on later turns, which is not counted.
+	 * @param edge the free edge to check
+	 * @return the number of boxes given away, or 0 if the edge fills a box
+	 *         itself or gives nothing away
+	 */
+	public int sacrificeCost(int edge)
+	{
+		update();
+		int before = board.boxBefore(edge);
+		int after = board.boxAfter(edge);
+		if ((before >= 0 && board.sidesTaken(before) == 3)
+				|| (after >= 0 && board.sidesTaken(after) == 3))
+			return 0;
+		int chainBefore = before >= 0 ? chainOf[before] : -1;
+		int chainAfter = after >= 0 ? chainOf[after] : -1;
+		int cost = 0;
+		if (chainBefore >= 0)
+			cost += length[chainBefore];
+		if (chainAfter >= 0 && chainAfter != chainBefore)
+			cost += length[chainAfter];
+		return cost;
+	}
+
+	/**
+	 * Lists the moves worth making when a box can be filled. There is
+	 * nothing better than filling it, except when only two boxes of a chain
+	 * or four of a loop are left, where leaving the last two boxes to the
+	 * other player can keep control.
+	 * @param list the array to put the moves in, with room for two
+	 * @return the number of moves listed, or 0 if no box can be filled
+	 */
+	public int capturingMoves(int[] list)
+	{
+		MoveList capturableBoxes = board.capturableBoxes();
+		if (capturableBoxes.size() == 0)
+			return 0;
+		int declined = -1;
+		for (int index = 0; index < capturableBoxes.size(); index++)
+		{
+			int box = capturableBoxes.get(index);
+			int edge = board.freeEdge(box);
+			int decline = declineEdge(box, edge);
+			if (decline < 0)
+			{
+				list[0] = edge;
+				return 1;
+			}
+			if (declined < 0)
+			{
+				list[0] = edge;
+				declined = decline;
+			}
+		}
+		list[1] = declined;
+		return 2;
+	}
+
+	/**
+	 * Finds the move that leaves the last two boxes of a chain to the other
+	 * player instead of taking them. This is only worth trying when two
+	 * boxes of a chain or four boxes of a loop are left.
+	 * @param box a box with three sides taken
+	 * @param edge the free side of the box
+	 * @return the edge that declines the boxes or -1 if taking the box is
+	 * 			best
+	 */
+	private int declineEdge(int box, int edge)
+	{
+		int length = 1;
+		int second = -1;
+		int next = across(box, edge);
+		while (next >= 0 && board.sidesTaken(next) == 2)
+		{
+			length++;
+			edge = otherFreeEdge(next, edge);
+			if (length == 2)
+				second = edge;
+			box = next;
+			next = across(box, edge);
+		}
+		// A loop ends at another box with three sides taken
+		boolean loop = next >= 0 && board.sidesTaken(next) == 3;
+		if ((!loop && length == 2) || (loop && length == 3))
+			return second;
+		return -1;
+	}
+
+	/**
+	 * Works out the chains around the boxes that have changed. Every chain
+	 * that a changed box or one of its neighbours was part of is thrown away
+	 * and walked again from those boxes.
+	 */
+	private void update()
+	{
+		if (changed.size() == 0)
+			return;
+		stamp++;
+
+		// Collect the changed boxes and the boxes next to them
+		int noOfSeeds = 0;
+		for (int index = 0; index < changed.size(); index++)
+		{
+			int box = changed.get(index);
+			noOfSeeds = addSeed(box, noOfSeeds);
+			for (int side = Box.TOP; side <= Box.RIGHT; side++)
+			{
+				int edge = board.edge(box / board.cols(), box % board.cols(),
+						side);
+				int next = across(box, edge);
+				if (!board.isTaken(edge) && next >= 0)
+					noOfSeeds = addSeed(next, noOfSeeds);
+			}
+		}
+		changed.clear();
+
+		// Throw away the chains they were part of
+		for (int index = 0; index < noOfSeeds; index++)
+		{
+			int box = seeds[index];
+			int chain = chainOf[box];
+			if (chain >= 0 && chains.contains(chain))
+			{
+				count(chain, -1);
+				chains.remove(chain);
+			}
+			chainOf[box] = -1;
+		}
+
+		// Walk the chains again
+		for (int index = 0; index < noOfSeeds; index++)
+		{
+			int box = seeds[index];
+			if (chainOf[box] < 0 && board.sidesTaken(box) == 2)
+				walk(box);
+		}
+	}
+
+	/**
+	 * Adds a box to the seeds if it is not already there
+	 * @param box the box to add
+	 * @param noOfSeeds the number of seeds so far
+	 * @return the new number of seeds
+	 */
+	private int addSeed(int box, int noOfSeeds)
+	{
+		if (seen[box] == stamp)
+			return noOfSeeds;
+		seen[box] = stamp;
+		seeds[noOfSeeds] = box;
+		return noOfSeeds + 1;
+	}
+
+	/**
+	 * Finds the box on the other side of an edge
+	 * @param box the box on one side of the edge
+	 * @param edge the edge to cross
+	 * @return the box on the other side or -1 if the edge is on the border
+	 */
+	private int across(int box, int edge)
+	{
+		int before = board.boxBefore(edge);
+		return before == box ? board.boxAfter(edge) : before;
+	}
+
+	/**
+	 * Finds a free side of a box other than the given edge
+	 * @param box the box to check
+	 * @param except the edge to skip
+	 * @return the free edge or -1 if there is none
+	 */
+	private int otherFreeEdge(int box, int except)
+	{
+		int row = box / board.cols();
+		int col = box % board.cols();
+		for (int side = Box.TOP; side <= Box.RIGHT; side++)
+		{
+			int edge = board.edge(row, col, side);
+			if (edge != except && !board.isTaken(edge))
+				return edge;
+		}
+		return -1;
+	}
+
+	/**
+	 * Walks the chain a box is part of in both directions and records it
+	 * @param start a box with two sides taken
+	 */
+	private void walk(int start)
+	{
+		int count = 0;
+		members[count++] = start;
+		boolean isLoop = false;
+		int first = otherFreeEdge(start, -1);
+		int second = otherFreeEdge(start, first);
+
+		// Walk out through the first free side and then the second
+		for (int direction = 0; direction < 2 && !isLoop; direction++)
+		{
+			int edge = direction == 0 ? first : second;
+			int next = across(start, edge);
+			while (next >= 0 && board.sidesTaken(next) == 2)
+			{
+				if (next == start)
+				{
+					isLoop = true;
+					break;
+				}
+				members[count++] = next;
+				edge = otherFreeEdge(next, edge);
+				next = across(next, edge);
+			}
+		}
+
+		// The chain is known by its smallest box
+		int chain = start;
+		for (int index = 1; index < count; index++)
+			chain = Math.min(chain, members[index]);
+		for (int index = 0; index < count; index++)
+			chainOf[members[index]] = chain;
+		length[chain] = count;
+		loop[chain] = isLoop;
+		chains.add(chain);
+		count(chain, 1);
+	}
+
+	/**
+	 * Adds a chain to the counts of chains or takes it away
+	 * @param chain the chain to count
+	 * @param change 1 to add the chain or -1 to take it away
+	 */
+	private void count(int chain, int change)
+	{
+		if (loop[chain])
+		{
+			loops += change;
+			longBoxes += change * length[chain];
+		}
+		else if (length[chain] >= 3)
+		{
+			longChains += change;
+			longBoxes += change * length[chain];
+		}
+		else if (length[chain] == 2)
+			doubles += change;
+		else
+			singles += change;
+	}
+}
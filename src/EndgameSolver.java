@@ -0,0 +1,415 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Solves the end of the game exactly once every move gives boxes away. When
+ * no safe moves are left and every box that has not been filled is part of
+ * a chain or a loop, the game only depends on how many chains and loops of
+ * each length there are. The player to move has to open one of them. The
+ * other player can take every box and move again, or take all but the last
+ * two boxes of a chain (four of a loop) and leave them, so the player who
+ * opened it has to move again (double dealing). Chains of two boxes are
+ * opened in the middle so they cannot be double dealt. The value of every
+ * set of chains and loops that is worked out is remembered under the exact
+ * count of each kind, so the same set reached in a different way is only
+ * solved once. Includes a constructor to
+ * make a solver, value to solve the position, bestMove to choose the chain
+ * or loop to open, and declineMove to check whether the last boxes of a
+ * chain should be left to the other player.
+ */
+public class EndgameSolver
+{
+	// The result when a position cannot be solved
+	public final static int UNSOLVED = Integer.MIN_VALUE;
+
+	// The most sets of chains and loops that are solved for one position,
+	// and the most that are remembered
+	private final static long MAX_STATES = 1L << 18;
+	private final static int MAX_REMEMBERED = 1 << 20;
+
+	// The sets of chains and loops that have been solved
+	private final HashMap<SetKey, Integer> solved;
+
+	// The kinds of chains and loops in the position being solved, shortest
+	// first: the length of each kind, whether it is a loop and how many
+	// there are
+	private int kinds;
+	private int[] lengths;
+	private boolean[] loops;
+	private int[] counts;
+
+	/**
+	 * Constructs a solver that has not solved anything yet
+	 */
+	public EndgameSolver()
+	{
+		solved = new HashMap<SetKey, Integer>();
+		lengths = new int[16];
+		loops = new boolean[16];
+		counts = new int[16];
+	}
+
+	/**
+	 * Solves a position where no box can be filled and no move is safe
+	 * @param board the position
+	 * @return the number of boxes the player to move will fill from here
+	 * 			minus the number the other player will fill, or UNSOLVED if
+	 * 			some box is not part of a chain or loop or there are too many
+	 * 			different chains and loops
+	 */
+	public int value(BitBoard board)
+	{
+		if (board.capturableBoxes().size() > 0 || !collect(board, null, 0))
+			return UNSOLVED;
+		return solve();
+	}
+
+	/**
+	 * Chooses the chain or loop to open in a position where no box can be
+	 * filled and no move is safe. A chain of two is opened in the middle, a
+	 * longer chain at one end.
+	 * @param board the position
+	 * @return the edge to take or -1 if the position cannot be solved
+	 */
+	public int bestMove(BitBoard board)
+	{
+		if (board.capturableBoxes().size() > 0 || !collect(board, null, 0))
+			return -1;
+		int bestKind = -1;
+		int bestValue = Integer.MIN_VALUE;
+		if (solve() == UNSOLVED)
+			return -1;
+		for (int kind = 0; kind < kinds; kind++)
+		{
+			if (counts[kind] == 0)
+				continue;
+			counts[kind]--;
+			int value = -taken(kind, solve());
+			counts[kind]++;
+			if (value > bestValue)
+			{
+				bestValue = value;
+				bestKind = kind;
+			}
+		}
+
+		// Find a chain of the best kind and open it
+		ChainTracker tracker = board.chainTracker();
+		MoveList chains = tracker.chains();
+		for (int index = 0; index < chains.size(); index++)
+		{
+			int chain = chains.get(index);
+			if (tracker.length(chain) == lengths[bestKind]
+					&& tracker.loop(chain) == loops[bestKind])
+				return openingEdge(board, chain, lengths[bestKind],
+						loops[bestKind]);
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks whether the last two boxes of a chain, or four of a loop, that
+	 * the other player has opened should be left to them to keep control
+	 * @param board the position, with boxes that can be filled
+	 * @return the edge that leaves the boxes, or -1 if the boxes should be
+	 * 			taken or the position cannot be solved
+	 */
+	public int declineMove(BitBoard board)
+	{
+		int[] choices = new int[2];
+		ChainTracker tracker = board.chainTracker();
+		if (tracker.capturingMoves(choices) != 2)
+			return -1;
+
+		// Leave out the chains joined to the boxes that can be filled
+		MoveList capturableBoxes = board.capturableBoxes();
+		int opened = capturableBoxes.size();
+		int[] skipped = new int[capturableBoxes.size()];
+		for (int index = 0; index < capturableBoxes.size(); index++)
+		{
+			int box = capturableBoxes.get(index);
+			int next = across(board, box, board.freeEdge(box));
+			skipped[index] = next >= 0 ? tracker.chainOf(next) : -1;
+			// Both ends of an opened loop lead to the same chain
+			for (int other = 0; other < index; other++)
+				if (skipped[other] == skipped[index])
+					skipped[index] = -1;
+			if (skipped[index] >= 0)
+				opened += tracker.length(skipped[index]);
+		}
+		if (!collect(board, skipped, opened))
+			return -1;
+		int rest = solve();
+		if (rest == UNSOLVED)
+			return -1;
+		// Taking the boxes means moving next, leaving them means the other
+		// player takes them and moves next
+		if (-opened - rest > opened + rest)
+			return choices[1];
+		return -1;
+	}
+
+	/**
+	 * Works out the value of the current set of chains and loops for the
+	 * player who has to open one of them
+	 * @return the value for the player to move or UNSOLVED if there are too
+	 * 			many sets to solve
+	 */
+	private int solve()
+	{
+		long states = 1;
+		for (int kind = 0; kind < kinds && states <= MAX_STATES; kind++)
+			states *= counts[kind] + 1;
+		if (states > MAX_STATES)
+			return UNSOLVED;
+		if (solved.size() > MAX_REMEMBERED)
+			solved.clear();
+		return search();
+	}
+
+	/**
+	 * Works out the value of the current set of chains and loops, trying
+	 * every kind of chain or loop to open
+	 * @return the value for the player to move
+	 */
+	private int search()
+	{
+		SetKey key = setKey();
+		Integer known = solved.get(key);
+		if (known != null)
+			return known;
+		int best = Integer.MIN_VALUE;
+		for (int kind = 0; kind < kinds; kind++)
+		{
+			if (counts[kind] == 0)
+				continue;
+			counts[kind]--;
+			int value = -taken(kind, search());
+			counts[kind]++;
+			best = Math.max(best, value);
+		}
+		// Nothing is left to open
+		if (best == Integer.MIN_VALUE)
+			best = 0;
+		solved.put(key, best);
+		return best;
+	}
+
+	/**
+	 * Works out the value for the player who is given a chain or loop
+	 * @param kind the kind of chain or loop that was opened
+	 * @param rest the value of the chains and loops left for the player to
+	 * 			move after it
+	 * @return the best value for the player given the boxes
+	 */
+	private int taken(int kind, int rest)
+	{
+		int length = lengths[kind];
+		if (loops[kind])
+			return Math.max(length + rest, length - 8 - rest);
+		if (length >= 3)
+			return Math.max(length + rest, length - 4 - rest);
+		return length + rest;
+	}
+
+	/**
+	 * Counts the chains and loops of each kind in a position where every
+	 * box that has not been filled is part of a chain or loop
+	 * @param board the position
+	 * @param skipped chains to leave out, or null to count every chain
+	 * @param opened the number of boxes that are not part of a chain that is
+	 * 			counted or left out
+	 * @return false if some other box has not been filled or a move is safe
+	 */
+	private boolean collect(BitBoard board, int[] skipped, int opened)
+	{
+		if (board.safeEdges().size() > 0)
+			return false;
+		ChainTracker tracker = board.chainTracker();
+		MoveList chains = tracker.chains();
+		int boxes = opened;
+		kinds = 0;
+		for (int index = 0; index < chains.size(); index++)
+		{
+			int chain = chains.get(index);
+			boolean skip = false;
+			for (int other = 0; skipped != null && other < skipped.length; other++)
+				if (skipped[other] == chain)
+					skip = true;
+			if (!skip)
+			{
+				boxes += tracker.length(chain);
+				addKind(tracker.length(chain), tracker.loop(chain));
+			}
+		}
+		return boxes == board.boxCount() - board.filledBoxes();
+	}
+
+	/**
+	 * Adds a chain or loop to the count of its kind, keeping the kinds in
+	 * order so the same set of chains and loops always gets the same key
+	 * @param length the number of boxes
+	 * @param loop whether it is a loop
+	 */
+	private void addKind(int length, boolean loop)
+	{
+		int code = kindCode(length, loop);
+		int kind = 0;
+		while (kind < kinds && kindCode(lengths[kind], loops[kind]) < code)
+			kind++;
+		if (kind < kinds && lengths[kind] == length && loops[kind] == loop)
+		{
+			counts[kind]++;
+			return;
+		}
+		if (kinds == lengths.length)
+		{
+			lengths = Arrays.copyOf(lengths, kinds * 2);
+			loops = Arrays.copyOf(loops, kinds * 2);
+			counts = Arrays.copyOf(counts, kinds * 2);
+		}
+
+		// Move the longer kinds along to make room
+		System.arraycopy(lengths, kind, lengths, kind + 1, kinds - kind);
+		System.arraycopy(loops, kind, loops, kind + 1, kinds - kind);
+		System.arraycopy(counts, kind, counts, kind + 1, kinds - kind);
+		lengths[kind] = length;
+		loops[kind] = loop;
+		counts[kind] = 1;
+		kinds++;
+	}
+
+	/**
+	 * Works out the number that stands for a kind of chain or loop
+	 * @param length the number of boxes
+	 * @param loop whether it is a loop
+	 * @return twice the length, plus one for a loop
+	 */
+	private static int kindCode(int length, boolean loop)
+	{
+		return 2 * length + (loop ? 1 : 0);
+	}
+
+	/**
+	 * Works out the key of the current set of chains and loops. The key lists
+	 * every kind there is at least one of, in order, with how many there
+	 * are, so two different sets never share a key.
+	 * @return the key
+	 */
+	private SetKey setKey()
+	{
+		int[] parts = new int[2 * kinds];
+		int size = 0;
+		for (int kind = 0; kind < kinds; kind++)
+			if (counts[kind] > 0)
+			{
+				parts[size++] = kindCode(lengths[kind], loops[kind]);
+				parts[size++] = counts[kind];
+			}
+		return new SetKey(Arrays.copyOf(parts, size));
+	}
+
+	/**
+	 * Finds the edge that opens a chain or loop
+	 * @param board the position
+	 * @param chain the smallest box of the chain
+	 * @param length the number of boxes in the chain
+	 * @param loop whether the chain is a loop
+	 * @return the edge to take
+	 */
+	private int openingEdge(BitBoard board, int chain, int length,
+			boolean loop)
+	{
+		if (loop || length == 1)
+			return board.freeEdge(chain);
+		// Walk to one end of the chain
+		int box = chain;
+		int previous = -1;
+		while (true)
+		{
+			int next = -1;
+			int nextEdge = -1;
+			int row = box / board.cols();
+			int col = box % board.cols();
+			for (int side = Box.TOP; side <= Box.RIGHT && next < 0; side++)
+			{
+				int edge = board.edge(row, col, side);
+				int other = across(board, box, edge);
+				if (!board.isTaken(edge) && other >= 0 && other != previous)
+				{
+					next = other;
+					nextEdge = edge;
+				}
+			}
+			// A chain of two is opened between its boxes
+			if (length == 2 && next >= 0)
+				return nextEdge;
+			if (next < 0)
+			{
+				// The end of the chain is opened on its outside edge
+				for (int side = Box.TOP; side <= Box.RIGHT; side++)
+				{
+					int edge = board.edge(row, col, side);
+					if (!board.isTaken(edge) && across(board, box, edge) < 0)
+						return edge;
+				}
+				return board.freeEdge(box);
+			}
+			previous = box;
+			box = next;
+		}
+	}
+
+	/**
+	 * Finds the box on the other side of an edge
+	 * @param board the position
+	 * @param box the box on one side of the edge
+	 * @param edge the edge to cross
+	 * @return the box on the other side or -1 if the edge is on the border
+	 */
+	private int across(BitBoard board, int box, int edge)
+	{
+		int before = board.boxBefore(edge);
+		return before == box ? board.boxAfter(edge) : before;
+	}
+
+	/**
+	 * The key a solved set of chains and loops is remembered under: each kind
+	 * there is at least one of, in order, followed by how many there are
+	 */
+	private static class SetKey
+	{
+		private final int[] parts;
+		private final int hash;
+
+		/**
+		 * Constructs the key of a set of chains and loops
+		 * @param parts the code of each kind followed by its count
+		 */
+		SetKey(int[] parts)
+		{
+			this.parts = parts;
+			hash = Arrays.hashCode(parts);
+		}
+
+		/**
+		 * Checks to see if another key is of exactly the same set
+		 * @param other the key to compare with
+		 * @return true if both keys have the same kinds and counts
+		 */
+		public boolean equals(Object other)
+		{
+			return other instanceof SetKey
+					&& Arrays.equals(parts, ((SetKey) other).parts);
+		}
+
+		/**
+		 * Returns the hash code of the key
+		 * @return the hash code
+		 */
+		public int hashCode()
+		{
+			return hash;
+		}
+	}
+}
@@ -1,96 +1,86 @@
 import java.awt.Graphics;
-import java.awt.Point;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
 
 /**
- * Keeps track of the grid information including the possible sides and
- * boxes in the grid. Includes a constructor to create a default Grid object
- * and another to copy a current Grid object. Includes updateGrid that updates
+ * Keeps track of the grid information including the current player and
+ * whether there is a computer player. The edges and boxes of the grid are
+ * kept in a BitBoard. A grid can have any number of rows and columns from 3
+ * up to 1024. Includes a constructor to create a default 8 by 8 Grid object,
+ * another to create a Grid of any size and another to copy a current Grid
+ * object. Includes updateGrid that updates
  * Grid on current player and whether there is a computer, computerPlayer that
- * checks to see if there is a computer player, currentPlayer that returns
- * the character of the player, possibleMoves to return the ArrayList of
- * possibleMoves, getBoard that returns the array of Box objects, updateBoxOnePlayer
- * that updates the grid when a player has made a move in one player game, updateBox
- * that updates the grid when a player has made a move in 2 player game, updateBoxComputer
- * that updates the grid when the computer has made a move, updateBoardComputer that updates
- * the grid when the computer is choosing a move, calculateScore to calculate the score,
- * draw to draw the board, drawComputer to highlight the last move made by the computer. 
+ * checks to see if there is a computer player, difficulty and setDifficulty
+ * to keep how the computer plays, currentPlayer that returns
+ * the character of the player, possibleMoves to return the MoveList of edges
+ * that have not been taken, getState that returns the BitBoard of the grid,
+ * rows, cols and spacing to return the size of the grid, view to return how
+ * the grid is shown, clickedMove to find the move for a click, play that updates the grid when a
+ * player or the computer has made a move, undo to take back the last move,
+ * calculateScore to calculate the score, isGameOver to check whether every Box
+ * has been filled, hash, equals and hashCode to identify the position, draw
+ * to draw the board, drawComputer to highlight the last move made by the
+ * computer. 
  * @author Stephanie Giang, Sherilyn Hua, & Zoe Zou
  * @version June 11, 2015
  */
 public class Grid implements Serializable
 {
-	private final static int POINT_SPACING = 75;
-	private final static int LEFT_SPACING = 17;
-	private final static int TOP_SPACING = 44;
+	// The smallest and largest number of rows or columns in a grid
+	public final static int MIN_SIZE = 3;
+	public final static int MAX_SIZE = 1024;
 	
-	private static final long serialVersionUID = 1L;
-	private Box[][] grid;
-	private ArrayList<String> possibleSides;
+	private static final long serialVersionUID = 2L;
+	private BitBoard state;
 	private int currentPlayer;
 	private int computer;
+	// How the computer chooses its moves, kept so a saved game plays the same
+	private int difficulty;
+	// How the grid is shown on the screen, kept between paints
+	private transient BoardView view;
 
 	/**
-	 * Constructs a Grid object
+	 * Constructs an 8 by 8 Grid object
 	 */
 	public Grid()
 	{
+		this(8, 8);
+	}
+
+	/**
+	 * Constructs a Grid object with the given number of rows and columns
+	 * @param rows the number of rows of boxes
+	 * @param cols the number of columns of boxes
+	 */
+	public Grid(int rows, int cols)
+	{
+		if (rows < MIN_SIZE || rows > MAX_SIZE || cols < MIN_SIZE
+				|| cols > MAX_SIZE)
+			throw new IllegalArgumentException("A grid must have between "
+					+ MIN_SIZE + " and " + MAX_SIZE + " rows and columns");
 		currentPlayer = 0;
 		computer = 0; 
-		grid = new Box[8][8];
-		for (int row = 0; row < grid.length; row++)
-		{
-			for (int col = 0; col < grid[row].length; col++)
-			{
-				grid[row][col] = new Box();
-			}
-		}
-		
-		// The ArrayList of possible moves that can be made
-		possibleSides=new ArrayList<String>(64);
-		for (int row=0;row<=6;row++)
-		{
-			for (int col=0;col<=7;col++)
-			{
-				possibleSides.add(row+","+col+",1");
-				possibleSides.add(row+","+col+",3");
-			}
-			possibleSides.add(row+","+7+",4");
-		}
-		for (int col=0;col<=7;col++)
-		{
-			possibleSides.add(7+","+col+",1");
-			possibleSides.add(7+","+col+",2");
-			possibleSides.add(7+","+col+",3");
-		}
-		possibleSides.add(7+","+7+",4");
+		state = new BitBoard(rows, cols);
 	}
 	
 	/**
-	 * Constructs a Grid object with the given 
-	 * @param board
+	 * Constructs a copy of the given Grid object
+	 * @param other the Grid to copy
 	 */
-	public Grid (Box [][] board){
-		grid = new Box [8][8];
-		for (int row = 0; row < grid.length; row++)
-		{
-			for (int col = 0; col < grid[row].length; col++)
-			{
-				grid[row][col] = new Box (board[row][col]);
-			}
-		}
-		
+	public Grid (Grid other){
+		currentPlayer = other.currentPlayer;
+		computer = other.computer;
+		difficulty = other.difficulty;
+		state = new BitBoard(other.state);
 	}
 	
 	/**
 	 * Updates the current player's turn and whether there is
-	 * a computer or not. Used for save and load game.
+	 * a computer or not. Used for new, save and load game.
 	 * @param current the current player's turn
 	 * @param isComputer whether there is a computer or not
 	 */
@@ -98,6 +88,7 @@ public class Grid implements Serializable
 	{
 		currentPlayer = current;
 		computer = isComputer;
+		state.setToMove(current);
 	}
 	
 	/**
@@ -111,6 +102,25 @@ public class Grid implements Serializable
 		return computer;
 	}
 	
+	/**
+	 * Returns how the computer chooses its moves
+	 * @return the difficulty chosen when the game was started
+	 */
+	public int difficulty ()
+	{
+		return difficulty;
+	}
+	
+	/**
+	 * Sets how the computer chooses its moves. The difficulty is saved with
+	 * the grid so a loaded game is played the same way.
+	 * @param difficulty the difficulty chosen for the computer
+	 */
+	public void setDifficulty (int difficulty)
+	{
+		this.difficulty = difficulty;
+	}
+	
 	/**
 	 * Returns the character of the player
 	 * @return -1 if it is a villain
@@ -123,461 +133,109 @@ public class Grid implements Serializable
 	
 	/**
 	 * Returns the possible sides
-	 * @return the ArrayList of strings that contain the possible moves
+	 * @return the MoveList of edges that have not been taken
 	 */
-	public ArrayList<String> possibleMoves ()
+	public MoveList possibleMoves ()
 	{
-		return this.possibleSides;
+		return state.freeEdges();
 	}
 	
 	/**
-	 * Returns grid that contains Box objects
-	 * @return the array of Boxes (objects)
+	 * Returns the edges and boxes of the grid
+	 * @return the BitBoard that holds the grid
 	 */
-	public Box[][] getBoard()
+	public BitBoard getState()
 	{
-		return this.grid;
+		return this.state;
 	}
-	
 
 	/**
-	 * Checks to see if the side of the box was already clicked. Also
-	 * updates the Box that was clicked and checks to see if it affects
-	 * other Box objects as well. Also updates the possibleSides by
-	 * removing the sides clicked and the sides that were affected by the
-	 * click. This is used in the one player game. 
-	 * @param x the x coordinate of the click
-	 * @param y the y coordinate of the click
-	 * @param side the side that the player clicked
-	 * @param currentPlayer the player that clicked the box
-	 * @param possibleSides contains the available moves left
-	 * @return -1 if the side was already clicked
-	 * 			0 if a side was clicked and no boxes were filled
-	 * 			>0 if a side was clicked and a box was filled
+	 * Returns the number of rows of boxes
+	 * @return the number of rows
 	 */
-	public int updateBoxOnePlayer(int x, int y, int side, int currentPlayer)
+	public int rows()
 	{
-		// 1 - top, 2 - bottom, 3 - left, 4 - right
-		int filledBoxes = 0;
-		boolean lineClicked = false;
-		int row = (y - 40) / POINT_SPACING;
-		int col = (x - 10) / POINT_SPACING;
-		if (row > 7)
-			row--;
-		else if (col > 7)
-			col--;
+		return state.rows();
+	}
 
-		// Checks to see if that side has already been clicked
-		if (grid[row][col].sideClicked(side) == false)
-			return -1;
-		// Checks to see if the box is filled
-		if (grid[row][col].isBoxFilled(currentPlayer))
-			filledBoxes++;
+	/**
+	 * Returns the number of columns of boxes
+	 * @return the number of columns
+	 */
+	public int cols()
+	{
+		return state.cols();
+	}
 
-		// Remove the side that was clicked from available moves
-		int indexOfOriginal = possibleSides.indexOf(row+","+col+","+side);
-		if (indexOfOriginal != -1)
-			possibleSides.remove(indexOfOriginal);
-		// Check to see if the box next to the current box that has been clicked
-		// If so, make the appropriate side true
-		int indexOf = -1;
-		if (side == 1)
-		{
-			if (row == 0)
-				lineClicked = true;
-			else
-			{
-				// Make the affected side true
-				if (grid[row - 1][col].sideClicked(2))
-					lineClicked = true;
-				// Check to see if the box has been filled
-				if (grid[row - 1][col].isBoxFilled(currentPlayer))
-					filledBoxes++;
-				indexOf = possibleSides.indexOf((row-1)+","+"col"+",2");
-			}
-		}
-		else if (side == 2)
-		{
-			if (row == 7)
-				lineClicked = true;
-			else
-			{
-				// Make the affected side true
-				if (grid[row + 1][col].sideClicked(1))
-					lineClicked = true;
-				// Check to see if the box has been filled
-				if (grid[row + 1][col].isBoxFilled(currentPlayer))
-					filledBoxes++;
-				indexOf = possibleSides.indexOf((row+1)+","+"col"+",1");
-			}
-		}
-		else if (side == 3)
-		{
-			if (col == 0)
-				lineClicked = true;
-			else
-			{
-				// Make the affected side true
-				if (grid[row][col - 1].sideClicked(4))
-					lineClicked = true;
-				// Check to see if the box has been filled
-				if (grid[row][col - 1].isBoxFilled(currentPlayer))
-					filledBoxes++;
-				indexOf = possibleSides.indexOf(row+","+"(col-1)"+",4");
-			}
-		}
-		else
-		{
-			if (col == 7)
-				lineClicked = true;
-			else
-			{
-				// Make the affected side true
-				if (grid[row][col + 1].sideClicked(3))
-					lineClicked = true;
-				// Check to see if the box has been filled
-				if (grid[row][col + 1].isBoxFilled(currentPlayer))
-					filledBoxes++;
-				indexOf = possibleSides.indexOf(row+","+"(col-1)"+",3");
-			}
-		}
-		
-		// If indexOf is not -1 remove it from possibleSides
-		if (indexOf != -1)
-			possibleSides.remove(indexOf);
-		// If boxes were filled
-		if (filledBoxes > 0)
-			return filledBoxes;
-		// If a line was just clicked
-		if (lineClicked)
-			return 0;
-		return -1;
+	/**
+	 * Returns the distance between the dots at the zoom the grid is shown
+	 * at. The dots are 75 pixels apart on an 8 by 8 grid.
+	 * @return the distance between dots
+	 */
+	public int spacing()
+	{
+		return view().spacing();
 	}
-		
+
+	/**
+	 * Returns how the grid is shown on the screen, which is kept until the
+	 * grid is loaded or copied
+	 * @return the BoardView of the grid
+	 */
+	public BoardView view()
+	{
+		if (view == null)
+			view = new BoardView(state.rows(), state.cols());
+		return view;
+	}
+
 	/**
-	 * Checks to see if the side of the box was already clicked. Also
-	 * updates the Box that was clicked and checks to see if it affects
-	 * other Box objects as well. This is used in the two player game. 
+	 * Finds the move for a click on the side of a Box
 	 * @param x the x coordinate of the click
 	 * @param y the y coordinate of the click
-	 * @param side the side that the player clicked
-	 * @param currentPlayer the player that clicked the box
-	 * @return -1 if the side was already clicked
-	 * 			0 if a side was clicked and no boxes were filled
-	 * 			>0 if a side was clicked and a box was filled
+	 * @return the packed move or Move.NONE if the click was not on a side
 	 */
-		public int updateBox(int x, int y, int side, int currentPlayer)
-		{
-			int filledBoxes = 0;
-			boolean lineClicked = false;
-			// Find the row and columns of the box affected
-			int row = (y - 40) / POINT_SPACING;
-			int col = (x - 10) / POINT_SPACING;
-			// Check for out of bounds
-			if (row > 7)
-				row--;
-			else if (col > 7)
-				col--;
-
-			// Checks to see if that side has already been clicked
-			if (grid[row][col].sideClicked(side) == false)
-				return -1;
-			// Checks to see if the box is filled
-			if (grid[row][col].isBoxFilled(currentPlayer))
-				filledBoxes++;
-
-			// Check to see if the box next to the current box that has been clicked
-			// If so, make the appropriate side true
-			if (side == 1)
-			{
-				if (row == 0)
-					lineClicked = true;
-				else
-				{
-					// Make the affected side true
-					if (grid[row - 1][col].sideClicked(2))
-						lineClicked = true;
-					// Check to see if the box has been filled
-					if (grid[row - 1][col].isBoxFilled(currentPlayer))
-						filledBoxes++;
-				}
-			}
-			else if (side == 2)
-			{
-				if (row == 7)
-					lineClicked = true;
-				else
-				{
-					// Make the affected side true
-					if (grid[row + 1][col].sideClicked(1))
-						lineClicked = true;
-					// Check to see if the box has been filled
-					if (grid[row + 1][col].isBoxFilled(currentPlayer))
-						filledBoxes++;
-				}
-			}
-			else if (side == 3)
-			{
-				if (col == 0)
-					lineClicked = true;
-				else
-				{
-					// Make the affected side true
-					if (grid[row][col - 1].sideClicked(4))
-						lineClicked = true;
-					// Check to see if the box has been filled
-					if (grid[row][col - 1].isBoxFilled(currentPlayer))
-						filledBoxes++;
-				}
-			}
-			else
-			{
-				if (col == 7)
-					lineClicked = true;
-				else
-				{
-					// Make the affected side true
-					if (grid[row][col + 1].sideClicked(3))
-						lineClicked = true;
-					// Check to see if the box has been filled
-					if (grid[row][col + 1].isBoxFilled(currentPlayer))
-						filledBoxes++;
-				}
-			}
-
-		// If boxes were filled
-		if (filledBoxes > 0)
-			return filledBoxes;
-		// If a line was just clicked
-		if (lineClicked)
-			return 0;
-		return -1;
-
+	public int clickedMove(int x, int y)
+	{
+		return view().clickedMove(x, y);
 	}
 
 	/**
-	 * Checks to see if the side of the box was already clicked. Also
-	 * updates the Box that was clicked and checks to see if it affects
-	 * other Box objects as well. This is used by the computer player.
-	 * Updates the possibleSides as well. 
-	 * @param row the row of the Box
-	 * @param col the col of the Box
-	 * @param side the side of the Box
-	 * @param currentPlayer the character the computer is playing
-	 * @param possibleSides the possible moves left
+	 * Makes a move for a player. Takes the side of the Box, updates the Box
+	 * next to it and fills in any Box that was completed. The move is
+	 * remembered so that it can be undone. This is used for every move in
+	 * the game and by the computer player when it is looking ahead.
+	 * @param move the packed move to make
+	 * @param currentPlayer the player making the move
 	 * @return -1 if the side was already clicked
 	 * 			0 if a side was clicked and no boxes were filled
 	 * 			>0 if a side was clicked and a box was filled
 	 */
-	public int updateBoxComputer(int row, int col, int side, int currentPlayer)
+	public int play(int move, int currentPlayer)
 	{
-		int filledBoxes = 0;
-		boolean lineClicked = false;
-		int indexOf=0;
-		// Check to see if side was clicked before, if so update the Box information
-		if (!grid[row][col].sideClicked(side))
-			return -1;
-		// Check to see if current Box is filled 
-		if (grid[row][col].isBoxFilled(currentPlayer))
-			filledBoxes++;
-		// Remove it from possible moves
-		possibleSides.remove(row +"," + col +"," + side);
-		
-		// Check to see if the box next to the current box that has been clicked
-		// If so, make the appropriate side true
-		if (side == 1)
-		{
-			// Check for out of bounds
-			if (row == 0)
-			{
-				lineClicked = true;
-				indexOf=-1;
-			}
-			else
-			{
-				// Make the affected side true
-				if (grid[row - 1][col].sideClicked(2))
-					lineClicked = true;
-				// Check to see if box is filled
-				if (grid[row - 1][col].isBoxFilled(currentPlayer))
-					filledBoxes++;
-				indexOf = possibleSides.indexOf((row-1)+","+col+",2");
-			}
-		}
-		else if (side == 2)
-		{
-			// Check for out of bounds
-			if (row == 7)
-			{
-				lineClicked = true;
-				indexOf=-1;
-			}
-			else
-			{
-				// Make the affected side true
-				if (grid[row + 1][col].sideClicked(1))
-					lineClicked = true;
-				// Check to see if box is filled
-				if (grid[row + 1][col].isBoxFilled(currentPlayer))
-					filledBoxes++;
-				indexOf = possibleSides.indexOf((row+1)+","+col+",1");
-			}
-		}
-		else if (side == 3)
-		{
-			// Check for out of bounds
-			if (col == 0)
-			{
-				lineClicked = true;
-				indexOf=-1;
-			}
-			else
-			{
-				// Make the affected side true
-				if (grid[row][col - 1].sideClicked(4))
-					lineClicked = true;
-				// Check to see if box is filled
-				if (grid[row][col - 1].isBoxFilled(currentPlayer))
-					filledBoxes++;
-				indexOf = possibleSides.indexOf(row+","+(col-1)+",4");
-			}
-		}
-		else
-		{
-			// Check for out of bounds
-			if (col == 7)
-			{
-				lineClicked = true;
-				indexOf=-1;
-			}
-			else
-			{
-				// Make affected side true
-				if (grid[row][col + 1].sideClicked(3))
-					lineClicked = true;
-				// Check to see if box is filled
-				if (grid[row][col + 1].isBoxFilled(currentPlayer))
-					filledBoxes++;
-				indexOf = possibleSides.indexOf(row+","+(col+1)+",3");
-			}
-		}
-		// If indexOf is not -1 remove it from possibleSides
-		if (indexOf != -1)
-			possibleSides.remove(indexOf);
-		if (filledBoxes > 0)
-			return filledBoxes;
-		if (lineClicked)
-			return 0;
-		return -1;
-
+		return state.play(state.edgeOf(move), currentPlayer);
 	}
-	
+
 	/**
-	 * Checks to see if the side of the box was already clicked. Also
-	 * updates the Box that was clicked and checks to see if it affects
-	 * other Box objects as well. This is used to calculate the next
-	 * move that the computer should make.
-	 * @param row the row of the Box
-	 * @param col the column of the Box
-	 * @param side the side of the Box
-	 * @param currentPlayer the character the computer is playing
-	 * @param possibleSides the possible moves left
-	 * @return -1 if the side was already clicked
-	 * 			0 if a side was clicked and no boxes were filled
-	 * 			>0 if a side was clicked and a box was filled
+	 * Undoes the last move that was made, emptying any Box that it filled
+	 * @return the packed move that was undone or Move.NONE if no moves have
+	 * 			been made
 	 */
-	public int updateBoardComputer(int row, int col, int side, int currentPlayer)
+	public int undo()
 	{
-		int filledBoxes = 0;
-		boolean lineClicked = false;
-		// Checks to see if that side has already been clicked
-		if (grid[row][col].sideClicked(side) == false)
-			return -1;
-		// Checks to see if the box is filled
-		if (grid[row][col].isBoxFilled(currentPlayer))
-			filledBoxes++;
-
-		// Check to see if the box next to the current box that has been clicked
-		// If so, make the appropriate side true
-		if (side == 1)
-		{
-			if (row == 0)
-				lineClicked = true;
-			else
-			{
-				// Make the affected side true
-				if (grid[row - 1][col].sideClicked(2))
-					lineClicked = true;
-				// Check to see if the box has been filled
-				if (grid[row - 1][col].isBoxFilled(currentPlayer))
-					filledBoxes++;
-			}
-		}
-		else if (side == 2)
-		{
-			if (row == 7)
-				lineClicked = true;
-			else
-			{
-				// Make the affected side true
-				if (grid[row + 1][col].sideClicked(1))
-					lineClicked = true;
-				// Check to see if the box has been filled
-				if (grid[row + 1][col].isBoxFilled(currentPlayer))
-					filledBoxes++;
-			}
-		}
-		else if (side == 3)
-		{
-			if (col == 0)
-				lineClicked = true;
-			else
-			{
-				// Make the affected side true
-				if (grid[row][col - 1].sideClicked(4))
-					lineClicked = true;
-				// Check to see if the box has been filled
-				if (grid[row][col - 1].isBoxFilled(currentPlayer))
-					filledBoxes++;
-			}
-		}
-		else
-		{
-			if (col == 7)
-				lineClicked = true;
-			else
-			{
-				// Make the affected side true
-				if (grid[row][col + 1].sideClicked(3))
-					lineClicked = true;
-				// Check to see if the box has been filled
-				if (grid[row][col + 1].isBoxFilled(currentPlayer))
-					filledBoxes++;
-			}
-		}
-
-	// If boxes were filled
-	if (filledBoxes > 0)
-		return filledBoxes;
-	// If a line was just clicked
-	if (lineClicked)
-		return 0;
-	return -1;
-
-}
+		int edge = state.undo();
+		if (edge < 0)
+			return Move.NONE;
+		return state.move(edge);
+	}
 
 	/**
 	 * Clears the grid
 	 */
 	public void clear()
 	{
-		for (int row = 0; row < grid.length; row++)
-		{
-			for (int col = 0; col < grid[row].length; col++)
-			{
-				grid[row][col] = new Box();
-			}
-		}
+		state = new BitBoard(state.rows(), state.cols());
+		state.setToMove(currentPlayer);
 	}
 	
 	/**
@@ -587,37 +245,82 @@ public class Grid implements Serializable
 	 */
 	public int calculateScore(int playerNum)
 	{
-		int score = 0;
-		for (int row = 0; row < grid.length; row++)
-		{
-			for (int col = 0; col < grid[row].length; col++)
-			{
-				int playerFilled = grid[row][col].playerFilledBox();
-				if (playerFilled == playerNum)
-					score++;
-			}
-		}
-		return score;
+		return state.score(playerNum);
+	}
+
+	/**
+	 * Checks to see whether every Box has been filled
+	 * @return true if the game is over
+	 */
+	public boolean isGameOver()
+	{
+		return state.isFull();
+	}
+
+	/**
+	 * Returns the Zobrist hash of the edges that have been taken and the
+	 * player whose turn it is. The hash is kept up to date as moves are made
+	 * and undone.
+	 * @return the 64 bit hash of the position
+	 */
+	public long hash()
+	{
+		return state.hash();
+	}
+
+	/**
+	 * Checks to see if another Grid is in the same position: the same size,
+	 * the same sides taken and the same player to move
+	 * @param other the object to compare with
+	 * @return true if the grids are in the same position
+	 */
+	public boolean equals(Object other)
+	{
+		if (this == other)
+			return true;
+		if (!(other instanceof Grid))
+			return false;
+		return state.samePosition(((Grid) other).state);
+	}
+
+	/**
+	 * Returns a hash code for the position that matches equals
+	 * @return the hash code
+	 */
+	public int hashCode()
+	{
+		long hash = state.hash();
+		return (int) (hash ^ (hash >>> 32));
 	}
 
 	/**
 	 * Reads from a file and creates Grid objects
 	 * @param fileName the file to read from
 	 * @return the file as Grid objects
+	 * @throws IOException if the file cannot be read or does not hold a
+	 * 			Grid saved by this version of the game
 	 */
-	public static Grid readFromFile(String fileName)
+	public static Grid readFromFile(String fileName) throws IOException
 	{
+		ObjectInputStream fileIn = new ObjectInputStream(new FileInputStream(
+				fileName));
 		try
 		{
-			ObjectInputStream fileIn = new ObjectInputStream(
-					new FileInputStream(fileName));
-			Grid board = (Grid) fileIn.readObject();
-			fileIn.close();
-			return board;
+			return (Grid) fileIn.readObject();
+		}
+		catch (ClassNotFoundException exp)
+		{
+			throw new IOException(fileName + " does not hold a saved game",
+					exp);
 		}
-		catch (Exception exp)
+		catch (ClassCastException exp)
 		{
-			return new Grid();
+			throw new IOException(fileName + " does not hold a saved game",
+					exp);
+		}
+		finally
+		{
+			fileIn.close();
 		}
 	}
 
@@ -641,18 +344,14 @@ public class Grid implements Serializable
 	}
 
 	/**
-	 * Draws the grid. 
+	 * Draws the part of the grid that is shown. The grid is kept as
+	 * pictures that only have the moves made since the last time added to
+	 * them.
 	 * @param g
 	 */
 	public void draw(Graphics g)
 	{
-		for (int row = 0; row < 8; row++)
-			for (int col = 0; col < 8; col++)
-			{
-				grid[row][col].setPosition(new Point(POINT_SPACING * col
-						+ LEFT_SPACING, POINT_SPACING * row + TOP_SPACING));
-				grid[row][col].draw(g);
-			}
+		view().draw(g, state);
 	}
 	
 	/**
@@ -664,7 +363,8 @@ public class Grid implements Serializable
 	public void drawComputer (Graphics g, Player computer, boolean newGame)
 	{
 		// Only highlight the player's last move if it is not a new game
-		if (!newGame)
-			grid[computer.lastRow][computer.lastCol].drawLine(g, computer.lastSide);
+		int move = computer.getLastMove();
+		if (!newGame && move != Move.NONE)
+			view().highlight(g, move);
 	}
 }
\ No newline at end of file
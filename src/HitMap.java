@@ -0,0 +1,109 @@
+import java.util.Arrays;
+
+/**
+ * Finds the button under a point of one screen without checking every
+ * button. The screen is cut into small square cells and each cell lists the
+ * buttons that cover any of it, which is hardly ever more than one, so a
+ * point is checked against only the buttons of its cell however many buttons
+ * there are. Buttons are added as the rectangles they cover, with both edges
+ * counted as inside, and are numbered by whoever uses the map. Where buttons
+ * cover each other the one added first is found. Includes a constructor to
+ * make an empty map of a screen, add to add a button and buttonAt to find the
+ * button at a point.
+ */
+public class HitMap
+{
+	// The number returned for a point that is not on a button
+	public final static int NONE = -1;
+
+	// The width and height of a cell in pixels
+	private final static int CELL_SIZE = 16;
+	private final static int[] NO_BUTTONS = new int[0];
+
+	private final int cellsAcross;
+	private final int cellsDown;
+	// The buttons that cover each cell, in the order they were added, and
+	// the rectangle and number of each button
+	private final int[][] cells;
+	private int[] rectangles;
+	private int[] numbers;
+	private int buttons;
+
+	/**
+	 * Constructs a map of a screen with no buttons on it
+	 * @param width the width of the screen in pixels
+	 * @param height the height of the screen in pixels
+	 */
+	public HitMap(int width, int height)
+	{
+		cellsAcross = (width + CELL_SIZE - 1) / CELL_SIZE;
+		cellsDown = (height + CELL_SIZE - 1) / CELL_SIZE;
+		cells = new int[cellsAcross * cellsDown][];
+		Arrays.fill(cells, NO_BUTTONS);
+		rectangles = new int[16];
+		numbers = new int[4];
+	}
+
+	/**
+	 * Adds a button to the screen. The parts of it off the screen can never
+	 * be found.
+	 * @param number the number to find the button by, 0 or more
+	 * @param left the smallest x on the button
+	 * @param top the smallest y on the button
+	 * @param right the largest x on the button
+	 * @param bottom the largest y on the button
+	 */
+	public void add(int number, int left, int top, int right, int bottom)
+	{
+		if (buttons == numbers.length)
+		{
+			numbers = Arrays.copyOf(numbers, buttons * 2);
+			rectangles = Arrays.copyOf(rectangles, buttons * 8);
+		}
+		numbers[buttons] = number;
+		rectangles[buttons * 4] = left;
+		rectangles[buttons * 4 + 1] = top;
+		rectangles[buttons * 4 + 2] = right;
+		rectangles[buttons * 4 + 3] = bottom;
+
+		int firstCol = Math.max(0, left / CELL_SIZE);
+		int firstRow = Math.max(0, top / CELL_SIZE);
+		int lastCol = Math.min(cellsAcross - 1, right / CELL_SIZE);
+		int lastRow = Math.min(cellsDown - 1, bottom / CELL_SIZE);
+		for (int row = firstRow; row <= lastRow; row++)
+			for (int col = firstCol; col <= lastCol; col++)
+			{
+				int cell = row * cellsAcross + col;
+				int[] inCell = Arrays.copyOf(cells[cell], cells[cell].length + 1);
+				inCell[inCell.length - 1] = buttons;
+				cells[cell] = inCell;
+			}
+		buttons++;
+	}
+
+	/**
+	 * Finds the button at a point
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return the number of the button or NONE if there is no button there
+	 */
+	public int buttonAt(int x, int y)
+	{
+		if (x < 0 || y < 0)
+			return NONE;
+		int col = x / CELL_SIZE;
+		int row = y / CELL_SIZE;
+		if (col >= cellsAcross || row >= cellsDown)
+			return NONE;
+		int[] inCell = cells[row * cellsAcross + col];
+		for (int index = 0; index < inCell.length; index++)
+		{
+			int button = inCell[index] * 4;
+			if (x >= rectangles[button] && y >= rectangles[button + 1]
+					&& x <= rectangles[button + 2]
+					&& y <= rectangles[button + 3])
+				return numbers[inCell[index]];
+		}
+		return NONE;
+	}
+}
@@ -0,0 +1,99 @@
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import javax.imageio.ImageIO;
+
+/**
+ * Loads every image of the game once and keeps it for drawing. Each image is
+ * copied into a BufferedImage in the same format as the screen, so drawing
+ * it is a plain copy instead of a conversion every time the board is
+ * painted. Images are looked up by their file name, such as "main.jpg".
+ * Includes a constructor to load the images of a folder, get to return an
+ * image and size to count the images.
+ */
+public class ImageCache
+{
+	private final HashMap<String, BufferedImage> images;
+
+	/**
+	 * Constructs a cache of every png, jpg and gif image in a folder. Images
+	 * that cannot be read are left out.
+	 * @param folder the folder of the images
+	 */
+	public ImageCache(String folder)
+	{
+		images = new HashMap<String, BufferedImage>();
+		GraphicsConfiguration screen = null;
+		if (!GraphicsEnvironment.isHeadless())
+			screen = GraphicsEnvironment.getLocalGraphicsEnvironment()
+					.getDefaultScreenDevice().getDefaultConfiguration();
+
+		File[] files = new File(folder).listFiles();
+		if (files == null)
+			return;
+		for (int index = 0; index < files.length; index++)
+		{
+			String name = files[index].getName();
+			String lowerName = name.toLowerCase();
+			if (!lowerName.endsWith(".png") && !lowerName.endsWith(".jpg")
+					&& !lowerName.endsWith(".gif"))
+				continue;
+			try
+			{
+				BufferedImage image = ImageIO.read(files[index]);
+				if (image != null)
+					images.put(name, toScreenFormat(image, screen));
+			}
+			catch (IOException exp)
+			{
+				System.out.println("Error reading the image " + name);
+			}
+		}
+	}
+
+	/**
+	 * Returns an image
+	 * @param name the file name of the image
+	 * @return the image or null if there is no image with that name, which
+	 * 			draws nothing
+	 */
+	public BufferedImage get(String name)
+	{
+		return images.get(name);
+	}
+
+	/**
+	 * Returns the number of images in the cache
+	 * @return the number of images
+	 */
+	public int size()
+	{
+		return images.size();
+	}
+
+	/**
+	 * Copies an image into the format of the screen
+	 * @param image the image that was read
+	 * @param screen the screen or null if there is none
+	 * @return the copy
+	 */
+	private static BufferedImage toScreenFormat(BufferedImage image,
+			GraphicsConfiguration screen)
+	{
+		BufferedImage copy;
+		if (screen != null)
+			copy = screen.createCompatibleImage(image.getWidth(),
+					image.getHeight(), image.getTransparency());
+		else
+			copy = new BufferedImage(image.getWidth(), image.getHeight(),
+					BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = copy.createGraphics();
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		return copy;
+	}
+}
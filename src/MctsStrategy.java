@@ -0,0 +1,408 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Chooses the computer's moves with Monte Carlo tree search. A tree of moves
+ * is grown from the current position: each time, the moves are followed down
+ * the tree choosing the move with the best UCT score (how often it has won
+ * plus a bonus for moves that have not been tried much), a new move is added
+ * at the bottom and the rest of the game is played out at random. The
+ * result of the game is then added to every move on the way down. The move
+ * played is the one that was followed most often.
+ *
+ * The tree is kept in arrays and every thread plays out games on its own
+ * BitBoard, making and undoing moves, so no objects are made while games are
+ * played out. Several threads grow the same tree at once. A thread counts a
+ * visit to every move on its way down before its game is finished (a virtual
+ * loss), so the other threads try different moves in the meantime. A random
+ * game takes every box it can, then a random safe move, and otherwise the
+ * move that gives away the fewest boxes, like the simple computer player.
+ * Includes constructors for the default budget and for a given budget, tree
+ * size and number of threads, chooseMove to pick a move, stop to cut the
+ * search short, close to let go of the playout threads, and getPlayouts and
+ * getPlayoutsPerSecond to see how many games were played out for the last
+ * move.
+ */
+public class MctsStrategy implements Strategy
+{
+	// The default time the computer can spend on a move, in milliseconds
+	public final static long DEFAULT_TIME_LIMIT = 500;
+
+	// The default largest number of moves in the tree
+	public final static int DEFAULT_TREE_SIZE = 1 << 19;
+
+	// How much the UCT score favours moves that have not been tried much
+	private final static double EXPLORATION = 1.4;
+
+	private final long timeLimit;
+	private final int threads;
+
+	// The tree: the move into each node, the player who made it, the node
+	// above it, where its children are, how often it was visited and the
+	// total result for the player who made the move
+	private final int[] edge;
+	private final byte[] mover;
+	private final int[] parent;
+	private final int[] firstChild;
+	private final int[] childCount;
+	private final int[] visits;
+	private final double[] wins;
+	private int size;
+	private final int[] capturingMoves;
+
+	// Information about the current search
+	private BitBoard root;
+	private long deadline;
+	private long[] playouts;
+	private long elapsed;
+	private ExecutorService executor;
+	private volatile boolean cancelled;
+
+	/**
+	 * Constructs a search that spends up to DEFAULT_TIME_LIMIT on a move
+	 * with one thread
+	 */
+	public MctsStrategy()
+	{
+		this(DEFAULT_TIME_LIMIT, DEFAULT_TREE_SIZE, 1);
+	}
+
+	/**
+	 * Constructs a search with the given budget, tree size and threads
+	 * @param timeLimit the time to spend on a move in milliseconds
+	 * @param treeSize the largest number of moves in the tree
+	 * @param threads the number of threads playing out games
+	 */
+	public MctsStrategy(long timeLimit, int treeSize, int threads)
+	{
+		if (timeLimit <= 0)
+			throw new IllegalArgumentException(
+					"A search needs a time limit");
+		if (treeSize < 2 || threads < 1)
+			throw new IllegalArgumentException(
+					"A search needs a tree and at least one thread");
+		this.timeLimit = timeLimit;
+		this.threads = threads;
+		edge = new int[treeSize];
+		mover = new byte[treeSize];
+		parent = new int[treeSize];
+		firstChild = new int[treeSize];
+		childCount = new int[treeSize];
+		visits = new int[treeSize];
+		wins = new double[treeSize];
+		capturingMoves = new int[2];
+		playouts = new long[threads];
+	}
+
+	/**
+	 * Returns the number of games played out for the last move
+	 * @return the number of playouts
+	 */
+	public long getPlayouts()
+	{
+		long total = 0;
+		for (int index = 0; index < playouts.length; index++)
+			total += playouts[index];
+		return total;
+	}
+
+	/**
+	 * Returns how many games were played out each second for the last move
+	 * @return the number of playouts each second
+	 */
+	public double getPlayoutsPerSecond()
+	{
+		if (elapsed == 0)
+			return 0;
+		return getPlayouts() * 1e9 / elapsed;
+	}
+
+	/**
+	 * Chooses the next move for a player by growing the tree until the time
+	 * runs out
+	 * @param grid the board the game is on
+	 * @param player 1 for the superhero or -1 for the villain
+	 * @return the packed move to make or Move.NONE if every box has been
+	 * 			filled
+	 */
+	public int chooseMove(Grid grid, final int player)
+	{
+		long start = System.nanoTime();
+		deadline = start + timeLimit * 1000000;
+		cancelled = false;
+		root = new BitBoard(grid.getState());
+		root.setToMove(player);
+		for (int index = 0; index < playouts.length; index++)
+			playouts[index] = 0;
+		if (root.isFull())
+			return Move.NONE;
+
+		// Start the tree with every move from the current position
+		size = 1;
+		parent[0] = -1;
+		edge[0] = -1;
+		mover[0] = (byte) -player;
+		visits[0] = 0;
+		wins[0] = 0;
+		childCount[0] = 0;
+		expand(0, root);
+
+		if (childCount[0] > 1)
+		{
+			Future<?>[] running = new Future<?>[threads - 1];
+			if (threads > 1 && executor == null)
+				executor = Executors.newFixedThreadPool(threads - 1,
+						new ThreadFactory()
+						{
+							public Thread newThread(Runnable task)
+							{
+								Thread thread = new Thread(task,
+										"Playout thread");
+								thread.setDaemon(true);
+								return thread;
+							}
+						});
+			for (int index = 0; index < running.length; index++)
+			{
+				final int worker = index + 1;
+				final BitBoard board = new BitBoard(root);
+				running[index] = executor.submit(new Runnable()
+				{
+					public void run()
+					{
+						grow(board, worker);
+					}
+				});
+			}
+			grow(new BitBoard(root), 0);
+			waitFor(running);
+		}
+		elapsed = System.nanoTime() - start;
+
+		// Play the move that was followed most often
+		int best = firstChild[0];
+		for (int child = firstChild[0]; child < firstChild[0] + childCount[0]; child++)
+			if (visits[child] > visits[best])
+				best = child;
+		int move = root.move(edge[best]);
+		root = null;
+		return move;
+	}
+
+	/**
+	 * Stops the search that is running in another thread. The move followed
+	 * most often so far is played.
+	 */
+	public void stop()
+	{
+		cancelled = true;
+	}
+
+	/**
+	 * Stops the search and shuts down the playout threads so they do not
+	 * keep the tree alive once the game is over. New threads are started if
+	 * chooseMove is called again. Must not be called while chooseMove is
+	 * running in another thread.
+	 */
+	public void close()
+	{
+		cancelled = true;
+		if (executor != null)
+		{
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
+	/**
+	 * Grows the tree until the time runs out
+	 * @param board this thread's copy of the current position
+	 * @param worker the number of this thread
+	 */
+	private void grow(BitBoard board, int worker)
+	{
+		SplittableRandom random = new SplittableRandom(System.nanoTime()
+				+ worker);
+		int rootMoves = board.movesMade();
+		while (System.nanoTime() < deadline && !cancelled)
+		{
+			int node = select(board);
+			playOut(board, random);
+			backUp(node, board);
+			while (board.movesMade() > rootMoves)
+				board.undo();
+			playouts[worker]++;
+		}
+	}
+
+	/**
+	 * Follows the moves with the best UCT score down the tree, making them
+	 * on the board, and adds the moves below the node it reaches if it has
+	 * been visited before. Every node on the way counts a visit now so other
+	 * threads are less likely to follow the same moves.
+	 * @param board this thread's copy of the current position
+	 * @return the node that was reached
+	 */
+	private synchronized int select(BitBoard board)
+	{
+		int node = 0;
+		visits[0]++;
+		while (true)
+		{
+			if (childCount[node] == 0)
+			{
+				if (visits[node] < 2 || !expand(node, board))
+					return node;
+			}
+			node = bestChild(node);
+			visits[node]++;
+			board.play(edge[node], mover[node]);
+		}
+	}
+
+	/**
+	 * Finds the child of a node with the best UCT score. A child that has
+	 * not been visited is always tried first.
+	 * @param node the node to look below
+	 * @return the best child
+	 */
+	private int bestChild(int node)
+	{
+		double logVisits = Math.log(visits[node]);
+		int best = -1;
+		double bestScore = -1;
+		for (int child = firstChild[node]; child < firstChild[node]
+				+ childCount[node]; child++)
+		{
+			if (visits[child] == 0)
+				return child;
+			double score = wins[child] / visits[child] + EXPLORATION
+					* Math.sqrt(logVisits / visits[child]);
+			if (score > bestScore)
+			{
+				bestScore = score;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Adds the moves from a position as the children of its node. If a box
+	 * can be filled only the capturing moves of the ChainTracker are added,
+	 * otherwise every move is.
+	 * @param node the node of the position
+	 * @param board the position
+	 * @return false if the game is over or the tree is full
+	 */
+	private boolean expand(int node, BitBoard board)
+	{
+		MoveList freeEdges = board.freeEdges();
+		int count = board.chainTracker().capturingMoves(capturingMoves);
+		boolean capturing = count > 0;
+		if (!capturing)
+			count = freeEdges.size();
+		if (count == 0 || size + count > edge.length)
+			return false;
+		int player = board.toMove();
+		for (int index = 0; index < count; index++)
+		{
+			int child = size + index;
+			edge[child] = capturing ? capturingMoves[index] : freeEdges
+					.get(index);
+			mover[child] = (byte) player;
+			parent[child] = node;
+			childCount[child] = 0;
+			visits[child] = 0;
+			wins[child] = 0;
+		}
+		firstChild[node] = size;
+		size += count;
+		childCount[node] = count;
+		return true;
+	}
+
+	/**
+	 * Plays the rest of the game at random. Every box that can be taken is
+	 * taken, then a random safe move is made, and otherwise the move that
+	 * gives away the fewest boxes.
+	 * @param board the position to play out
+	 * @param random this thread's random numbers
+	 */
+	private void playOut(BitBoard board, SplittableRandom random)
+	{
+		MoveList capturableBoxes = board.capturableBoxes();
+		MoveList safeEdges = board.safeEdges();
+		MoveList freeEdges = board.freeEdges();
+		ChainTracker chains = board.chainTracker();
+		while (!board.isFull())
+		{
+			int player = board.toMove();
+			if (capturableBoxes.size() > 0)
+				board.play(board.freeEdge(capturableBoxes.get(0)), player);
+			else if (safeEdges.size() > 0)
+				board.play(safeEdges.get(random.nextInt(safeEdges.size())),
+						player);
+			else
+			{
+				int bestEdge = freeEdges.get(0);
+				int fewestBoxes = chains.sacrificeCost(bestEdge);
+				for (int index = 1; index < freeEdges.size()
+						&& fewestBoxes > 1; index++)
+				{
+					int cost = chains.sacrificeCost(freeEdges.get(index));
+					if (cost < fewestBoxes)
+					{
+						fewestBoxes = cost;
+						bestEdge = freeEdges.get(index);
+					}
+				}
+				board.play(bestEdge, player);
+			}
+		}
+	}
+
+	/**
+	 * Adds the result of a game to every node from the given node up to the
+	 * root. Each node gets 1 if the player who made its move won, a half for
+	 * a tie and nothing for a loss.
+	 * @param node the node the game was played out from
+	 * @param board the board at the end of the game
+	 */
+	private synchronized void backUp(int node, BitBoard board)
+	{
+		int difference = board.score(1) - board.score(-1);
+		double superheroResult = difference > 0 ? 1 : difference == 0 ? 0.5
+				: 0;
+		for (; node >= 0; node = parent[node])
+			wins[node] += mover[node] == 1 ? superheroResult
+					: 1 - superheroResult;
+	}
+
+	/**
+	 * Waits for the other threads to stop
+	 * @param running the threads that were started
+	 */
+	private void waitFor(Future<?>[] running)
+	{
+		for (int index = 0; index < running.length; index++)
+		{
+			try
+			{
+				running[index].get();
+			}
+			catch (InterruptedException exp)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException exp)
+			{
+				throw new IllegalStateException(exp.getCause());
+			}
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ * Packs a move into a single int. A move is the row and column of a Box
+ * together with the side of the Box that is taken. The side is kept in the
+ * lowest 3 bits, the column in the next 13 bits and the row in the bits
+ * above that, so boards can be up to 8191 columns wide. Includes encode to
+ * pack a move, row, col and side to unpack it, and toString to write it out.
+ */
+public final class Move
+{
+	// Used when there is no move to make
+	public final static int NONE = -1;
+
+	private final static int SIDE_BITS = 3;
+	private final static int COL_BITS = 13;
+	private final static int SIDE_MASK = (1 << SIDE_BITS) - 1;
+	private final static int COL_MASK = (1 << COL_BITS) - 1;
+
+	private Move()
+	{
+	}
+
+	/**
+	 * Packs a move into an int
+	 * @param row the row of the Box
+	 * @param col the column of the Box
+	 * @param side 1 for top, 2 for bottom, 3 for left and 4 for right
+	 * @return the packed move
+	 */
+	public static int encode(int row, int col, int side)
+	{
+		return (row << (COL_BITS + SIDE_BITS)) | (col << SIDE_BITS) | side;
+	}
+
+	/**
+	 * Returns the row of a packed move
+	 * @param move the packed move
+	 * @return the row of the Box
+	 */
+	public static int row(int move)
+	{
+		return move >>> (COL_BITS + SIDE_BITS);
+	}
+
+	/**
+	 * Returns the column of a packed move
+	 * @param move the packed move
+	 * @return the column of the Box
+	 */
+	public static int col(int move)
+	{
+		return (move >>> SIDE_BITS) & COL_MASK;
+	}
+
+	/**
+	 * Returns the side of a packed move
+	 * @param move the packed move
+	 * @return 1 for top, 2 for bottom, 3 for left and 4 for right
+	 */
+	public static int side(int move)
+	{
+		return move & SIDE_MASK;
+	}
+
+	/**
+	 * Writes out a packed move
+	 * @param move the packed move
+	 * @return the move as "row,col,side"
+	 */
+	public static String toString(int move)
+	{
+		if (move == NONE)
+			return "none";
+		return row(move) + "," + col(move) + "," + side(move);
+	}
+}
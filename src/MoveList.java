@@ -0,0 +1,109 @@
+import java.util.Arrays;
+
+/**
+ * Keeps track of a set of ids (such as the edges of a BitBoard) that lie
+ * between 0 and a fixed capacity. The ids are kept packed at the front of an
+ * array so they can be picked by position, and the position of every id is
+ * remembered so an id can be found or removed without searching. Includes a
+ * constructor to create an empty list and another to copy a list, size to
+ * return the number of ids, get to return the id at a position, contains to
+ * check for an id, add to add an id, remove to remove an id and clear to
+ * remove every id.
+ */
+public class MoveList
+{
+	private final int[] ids;
+	private final int[] positions;
+	private int size;
+
+	/**
+	 * Constructs an empty list
+	 * @param capacity one more than the largest id that can be added
+	 */
+	public MoveList(int capacity)
+	{
+		ids = new int[capacity];
+		positions = new int[capacity];
+		Arrays.fill(positions, -1);
+		size = 0;
+	}
+
+	/**
+	 * Constructs a copy of the given list
+	 * @param other the list to copy
+	 */
+	public MoveList(MoveList other)
+	{
+		ids = other.ids.clone();
+		positions = other.positions.clone();
+		size = other.size;
+	}
+
+	/**
+	 * Returns the number of ids in the list
+	 * @return the number of ids
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the id at a position in the list
+	 * @param position the position, from 0 to size() - 1
+	 * @return the id at that position
+	 */
+	public int get(int position)
+	{
+		return ids[position];
+	}
+
+	/**
+	 * Checks to see if an id is in the list
+	 * @param id the id to check
+	 * @return true if the id is in the list
+	 */
+	public boolean contains(int id)
+	{
+		return positions[id] >= 0;
+	}
+
+	/**
+	 * Adds an id to the end of the list if it is not already there
+	 * @param id the id to add
+	 */
+	public void add(int id)
+	{
+		if (positions[id] >= 0)
+			return;
+		ids[size] = id;
+		positions[id] = size++;
+	}
+
+	/**
+	 * Removes an id from the list by moving the last id into its place
+	 * @param id the id to remove
+	 * @return true if the id was in the list
+	 */
+	public boolean remove(int id)
+	{
+		int position = positions[id];
+		if (position < 0)
+			return false;
+		int last = ids[--size];
+		ids[position] = last;
+		positions[last] = position;
+		positions[id] = -1;
+		return true;
+	}
+
+	/**
+	 * Removes every id from the list
+	 */
+	public void clear()
+	{
+		for (int position = 0; position < size; position++)
+			positions[ids[position]] = -1;
+		size = 0;
+	}
+}
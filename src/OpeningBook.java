@@ -0,0 +1,268 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a book of openings that was worked out ahead of time by
+ * OpeningBookBuilder, which BookStrategy plays the computer's first moves
+ * from. A book is made for one size of board and kept in a file with a
+ * header followed by a record for every position: the hash of the position
+ * and the edge to take. Positions that are the same when the board is turned
+ * around or flipped over are only kept once, using whichever way round gives
+ * the smallest hash, and the records are sorted by hash. The file is mapped
+ * into memory instead of being read, so nothing is loaded when the book is
+ * opened, and a position is found with a binary search. Includes open to
+ * open the book of a file, fileName to name the book of a size of board,
+ * lookUp to find the move for a position, rows, cols, plies and size to
+ * describe the book, symmetries to turn the edges of a board around, and key
+ * to hash a position turned around.
+ */
+public class OpeningBook
+{
+	// Marks the start of a book file
+	public final static int MAGIC = 0x424F4F4B;
+
+	// The size of the header (the marker, rows, columns, plies and number of
+	// records) and of each record (the hash and the edge), in bytes
+	public final static int HEADER_BYTES = 5 * 4;
+	public final static int RECORD_BYTES = 8 + 4;
+
+	// The mapped file and what it holds
+	private final MappedByteBuffer buffer;
+	private final int rows;
+	private final int cols;
+	private final int plies;
+	private final int size;
+	private final int[][] maps;
+	private final int[][] inverses;
+
+	/**
+	 * Constructs a book from a mapped file that has been checked
+	 * @param buffer the mapped file
+	 */
+	private OpeningBook(MappedByteBuffer buffer)
+	{
+		this.buffer = buffer;
+		rows = buffer.getInt(4);
+		cols = buffer.getInt(8);
+		plies = buffer.getInt(12);
+		size = buffer.getInt(16);
+		maps = symmetries(rows, cols);
+		inverses = new int[maps.length][maps[0].length];
+		for (int symmetry = 0; symmetry < maps.length; symmetry++)
+			for (int edge = 0; edge < maps[symmetry].length; edge++)
+				inverses[symmetry][maps[symmetry][edge]] = edge;
+	}
+
+	/**
+	 * Opens a book file by mapping it into memory
+	 * @param fileName the file to open
+	 * @return the book or null if the file cannot be read or is not a book
+	 */
+	public static OpeningBook open(String fileName)
+	{
+		try
+		{
+			RandomAccessFile file = new RandomAccessFile(fileName, "r");
+			try
+			{
+				FileChannel channel = file.getChannel();
+				if (channel.size() < HEADER_BYTES)
+					return null;
+				// The mapping stays valid after the file is closed
+				MappedByteBuffer buffer = channel.map(
+						FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (buffer.getInt(0) != MAGIC
+						|| channel.size() != HEADER_BYTES + (long) RECORD_BYTES
+								* buffer.getInt(16))
+					return null;
+				return new OpeningBook(buffer);
+			}
+			finally
+			{
+				file.close();
+			}
+		}
+		catch (IOException exp)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Names the book file for a size of board
+	 * @param rows the number of rows of boxes
+	 * @param cols the number of columns of boxes
+	 * @return the name of the file
+	 */
+	public static String fileName(int rows, int cols)
+	{
+		return "openings" + rows + "x" + cols + ".dat";
+	}
+
+	/**
+	 * Finds the move for a position. Only positions where no box has been
+	 * filled and no more than plies moves have been made are in the book.
+	 * @param board the position
+	 * @return the edge to take or -1 if the position is not in the book
+	 */
+	public int lookUp(BitBoard board)
+	{
+		if (board.rows() != rows || board.cols() != cols
+				|| board.movesMade() > plies || board.filledBoxes() > 0)
+			return -1;
+
+		// Turn the position around to the way it is kept in the book
+		int bestSymmetry = 0;
+		long bestKey = key(board, maps[0]);
+		for (int symmetry = 1; symmetry < maps.length; symmetry++)
+		{
+			long key = key(board, maps[symmetry]);
+			if (key < bestKey)
+			{
+				bestKey = key;
+				bestSymmetry = symmetry;
+			}
+		}
+
+		// Binary search for the hash
+		int low = 0;
+		int high = size - 1;
+		while (low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			int offset = HEADER_BYTES + middle * RECORD_BYTES;
+			long key = buffer.getLong(offset);
+			if (key < bestKey)
+				low = middle + 1;
+			else if (key > bestKey)
+				high = middle - 1;
+			else
+			{
+				// Turn the move back to the way the board is
+				int edge = buffer.getInt(offset + 8);
+				if (edge < 0 || edge >= inverses[bestSymmetry].length)
+					return -1;
+				edge = inverses[bestSymmetry][edge];
+				return board.isTaken(edge) ? -1 : edge;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the number of rows of boxes of the board the book is for
+	 * @return the number of rows
+	 */
+	public int rows()
+	{
+		return rows;
+	}
+
+	/**
+	 * Returns the number of columns of boxes of the board the book is for
+	 * @return the number of columns
+	 */
+	public int cols()
+	{
+		return cols;
+	}
+
+	/**
+	 * Returns the most moves made in a position in the book
+	 * @return the number of moves
+	 */
+	public int plies()
+	{
+		return plies;
+	}
+
+	/**
+	 * Returns the number of positions in the book
+	 * @return the number of positions
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Works out where every edge goes when a board is turned around or
+	 * flipped over. A square board can be turned 8 ways, counting leaving it
+	 * as it is, and other boards 4 ways. The first way leaves every edge
+	 * where it is.
+	 * @param rows the number of rows of boxes
+	 * @param cols the number of columns of boxes
+	 * @return for each way, the edge each edge goes to
+	 */
+	public static int[][] symmetries(int rows, int cols)
+	{
+		int horizontalEdges = (rows + 1) * cols;
+		int totalEdges = horizontalEdges + rows * (cols + 1);
+		int[][] maps = new int[rows == cols ? 8 : 4][totalEdges];
+		for (int symmetry = 0; symmetry < maps.length; symmetry++)
+			for (int edge = 0; edge < totalEdges; edge++)
+			{
+				// The dots at the ends of the edge
+				int row;
+				int col;
+				boolean horizontal = edge < horizontalEdges;
+				if (horizontal)
+				{
+					row = edge / cols;
+					col = edge % cols;
+				}
+				else
+				{
+					row = (edge - horizontalEdges) / (cols + 1);
+					col = (edge - horizontalEdges) % (cols + 1);
+				}
+				int endRow = horizontal ? row : row + 1;
+				int endCol = horizontal ? col + 1 : col;
+
+				// Swap rows and columns, then flip across and down
+				if ((symmetry & 4) != 0)
+				{
+					int swap = row;
+					row = col;
+					col = swap;
+					swap = endRow;
+					endRow = endCol;
+					endCol = swap;
+				}
+				if ((symmetry & 1) != 0)
+				{
+					col = cols - col;
+					endCol = cols - endCol;
+				}
+				if ((symmetry & 2) != 0)
+				{
+					row = rows - row;
+					endRow = rows - endRow;
+				}
+				if (row == endRow)
+					maps[symmetry][edge] = row * cols + Math.min(col, endCol);
+				else
+					maps[symmetry][edge] = horizontalEdges
+							+ Math.min(row, endRow) * (cols + 1) + col;
+			}
+		return maps;
+	}
+
+	/**
+	 * Works out the hash of a position turned around. Only the edges taken
+	 * are hashed, since the player to move is always the one who did not
+	 * make the last move while no box has been filled.
+	 * @param board the position
+	 * @param map where each edge goes, from symmetries
+	 * @return the hash of the position turned around
+	 */
+	public static long key(BitBoard board, int[] map)
+	{
+		long key = 0;
+		for (int index = 0; index < board.movesMade(); index++)
+			key ^= board.edgeKey(map[board.moveAt(index)]);
+		return key;
+	}
+}
@@ -0,0 +1,207 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds the book of openings that OpeningBook reads. Every position that can
+ * be reached in a few moves from the empty board without a box getting three
+ * sides is listed, keeping only one of the positions that are the same when
+ * the board is turned around or flipped over. Each position is searched with
+ * a SearchStrategy for a while, split between several threads, and the best
+ * move is written to the book turned around the same way as the position.
+ * The records are sorted by hash so the book can be searched without reading
+ * it. Run it with the rows, columns, most moves made in a position, time to
+ * search each position in milliseconds and, if wanted, the number of threads.
+ * Includes main to build a book, listPositions to find the positions and
+ * searchPositions to choose their moves.
+ */
+public class OpeningBookBuilder
+{
+	// The memory used by the table of each thread's search
+	private final static long TABLE_MEMORY = 8L << 20;
+
+	/**
+	 * Builds a book and writes it to the file named by OpeningBook.fileName
+	 * @param args the rows, columns, plies, milliseconds for each position
+	 * 			and the number of threads
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 4)
+		{
+			System.out.println("Usage: java OpeningBookBuilder rows cols "
+					+ "plies millisPerPosition [threads]");
+			return;
+		}
+		int rows = Integer.parseInt(args[0]);
+		int cols = Integer.parseInt(args[1]);
+		int plies = Integer.parseInt(args[2]);
+		long timeLimit = Long.parseLong(args[3]);
+		int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime
+				.getRuntime().availableProcessors();
+
+		long start = System.currentTimeMillis();
+		ArrayList<int[]> positions = new ArrayList<int[]>();
+		listPositions(new Grid(rows, cols), OpeningBook.symmetries(rows, cols),
+				plies, new HashSet<Long>(), positions);
+		System.out.println(positions.size() + " positions to search");
+		TreeMap<Long, Integer> book = searchPositions(rows, cols, positions,
+				timeLimit, threads);
+
+		String fileName = OpeningBook.fileName(rows, cols);
+		DataOutputStream fileOut = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(fileName)));
+		try
+		{
+			fileOut.writeInt(OpeningBook.MAGIC);
+			fileOut.writeInt(rows);
+			fileOut.writeInt(cols);
+			fileOut.writeInt(plies);
+			fileOut.writeInt(book.size());
+			for (Map.Entry<Long, Integer> entry : book.entrySet())
+			{
+				fileOut.writeLong(entry.getKey());
+				fileOut.writeInt(entry.getValue());
+			}
+		}
+		finally
+		{
+			fileOut.close();
+		}
+		System.out.println("Wrote " + book.size() + " positions to "
+				+ fileName + " in " + (System.currentTimeMillis() - start)
+				/ 1000 + " s");
+	}
+
+	/**
+	 * Lists every position up to a number of moves from the current one
+	 * where no box has three sides, one of each set of positions that are
+	 * the same turned around. The moves after a position that was already
+	 * listed are not followed again, since they are the same turned around
+	 * as the moves after the first one.
+	 * @param grid the current position, left the way it was given
+	 * @param maps where each edge goes, from OpeningBook.symmetries
+	 * @param plies the most moves made in a position
+	 * @param seen the smallest hash of every position listed so far
+	 * @param positions the edges taken in every position listed so far
+	 */
+	public static void listPositions(Grid grid, int[][] maps, int plies,
+			HashSet<Long> seen, ArrayList<int[]> positions)
+	{
+		BitBoard board = grid.getState();
+		if (board.capturableBoxes().size() > 0 || board.isFull())
+			return;
+		long key = OpeningBook.key(board, maps[0]);
+		for (int symmetry = 1; symmetry < maps.length; symmetry++)
+			key = Math.min(key, OpeningBook.key(board, maps[symmetry]));
+		if (!seen.add(key))
+			return;
+		int[] edges = new int[board.movesMade()];
+		for (int index = 0; index < edges.length; index++)
+			edges[index] = board.moveAt(index);
+		positions.add(edges);
+		if (edges.length == plies)
+			return;
+
+		MoveList freeEdges = board.freeEdges();
+		int[] moves = new int[freeEdges.size()];
+		for (int index = 0; index < moves.length; index++)
+			moves[index] = freeEdges.get(index);
+		for (int index = 0; index < moves.length; index++)
+		{
+			board.play(moves[index], board.toMove());
+			listPositions(grid, maps, plies, seen, positions);
+			board.undo();
+		}
+	}
+
+	/**
+	 * Chooses the move for every position, with the positions split between
+	 * several threads that each have their own search
+	 * @param rows the number of rows of boxes
+	 * @param cols the number of columns of boxes
+	 * @param positions the edges taken in every position
+	 * @param timeLimit the time to search each position in milliseconds
+	 * @param threads the number of threads to search with
+	 * @return the move for each position, turned around the way the book
+	 * 			keeps it, by the smallest hash of the position
+	 */
+	public static TreeMap<Long, Integer> searchPositions(final int rows,
+			final int cols, final ArrayList<int[]> positions,
+			final long timeLimit, final int threads)
+	{
+		final int[][] maps = OpeningBook.symmetries(rows, cols);
+		final long[] keys = new long[positions.size()];
+		final int[] moves = new int[positions.size()];
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<?>> running = new ArrayList<Future<?>>();
+		for (int thread = 0; thread < threads; thread++)
+		{
+			final int first = thread;
+			running.add(executor.submit(new Runnable()
+			{
+				public void run()
+				{
+					SearchStrategy search = new SearchStrategy(timeLimit, 0,
+							TABLE_MEMORY, 1);
+					for (int index = first; index < keys.length; index += threads)
+					{
+						Grid grid = new Grid(rows, cols);
+						BitBoard board = grid.getState();
+						int[] edges = positions.get(index);
+						for (int move = 0; move < edges.length; move++)
+							board.play(edges[move], board.toMove());
+
+						// Turn the move the way the position is kept
+						int symmetry = 0;
+						long key = OpeningBook.key(board, maps[0]);
+						for (int other = 1; other < maps.length; other++)
+						{
+							long otherKey = OpeningBook.key(board, maps[other]);
+							if (otherKey < key)
+							{
+								key = otherKey;
+								symmetry = other;
+							}
+						}
+						int edge = board.edgeOf(search.chooseMove(grid,
+								board.toMove()));
+						keys[index] = key;
+						moves[index] = maps[symmetry][edge];
+					}
+				}
+			}));
+		}
+		try
+		{
+			for (int index = 0; index < running.size(); index++)
+				running.get(index).get();
+		}
+		catch (InterruptedException exp)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException exp)
+		{
+			throw new IllegalStateException(exp.getCause());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		TreeMap<Long, Integer> book = new TreeMap<Long, Integer>();
+		for (int index = 0; index < keys.length; index++)
+			book.put(keys[index], moves[index]);
+		return book;
+	}
+}
@@ -1,27 +1,37 @@
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Date;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.text.SimpleDateFormat;
 
 /**
  * Keeps track of the player information including last move made, name, score,
- * player number, and date. 
+ * player number, and date. The computer player uses its Strategy to choose
+ * moves if it has one, otherwise it uses simple rules, and an EndgameSolver
+ * once every move gives boxes away. 
  * @author Stephanie Giang, Sherilyn Hua, Zoe Zou
  * @version June 11 2015
  */
 public class Player implements Comparable<Player>, Serializable
 {
+	private static final long serialVersionUID = -7219332064833192562L;
+
+	// The fewest moves each task checks in fewestBoxes
+	private final static int MIN_TASK_SIZE = 32;
+
 	// Initialize the variables
 	private int score;
 	private String name;
-	public int lastCol;
-	public int lastRow;
-	public int lastSide;
+	private int lastMove;
 	private int playerNo;
 	Date date;
-	private int fewestBoxes;
-	String lowestBoxes;
-	ArrayList<String> movesPossible;
+	// How the computer chooses its moves, not saved with the high scores
+	private transient Strategy strategy;
+	// Solves the end of the game for the simple rules, made when needed
+	private transient EndgameSolver endgame;
+	// Picks the random safe moves of the simple rules
+	private transient SplittableRandom random;
 
 	/**
 	 * Construct a player object with the given score and the side of the player
@@ -32,9 +42,7 @@ public class Player implements Comparable<Player>, Serializable
 	{
 		playerNo = player;
 		score = playerScore;
-		lastRow = 0;
-		lastCol = 0;
-		lastSide = 0;
+		lastMove = Move.NONE;
 	}
 
 	/**
@@ -96,16 +104,21 @@ public class Player implements Comparable<Player>, Serializable
 	}
 
 	/**
-	 * Determines the last move of a player by giving its coordinates and side
-	 * @param x x-coordinate
-	 * @param y y-coordinate
-	 * @param edge the side that the move is on
+	 * Determines the last move of a player
+	 * @param move the packed move
+	 */
+	public void lastMove(int move)
+	{
+		this.lastMove = move;
+	}
+
+	/**
+	 * Gets the last move of the Player
+	 * @return the packed move or Move.NONE if no move has been made
 	 */
-	public void lastMove(int x, int y, int edge)
+	public int getLastMove()
 	{
-		this.lastCol = y;
-		this.lastRow = x;
-		this.lastSide = edge;
+		return this.lastMove;
 	}
 
 	/**
@@ -134,167 +147,199 @@ public class Player implements Comparable<Player>, Serializable
 	// ////////////////////////////////////////////////////////////
 
 	/**
-	 * Generate a random move the computer can make
-	 * @param board the board the game is on
-	 * @param possibleSides the possible sides the computer can choose
-	 * @return the side the player chooses
+	 * Sets how the computer chooses its moves
+	 * @param strategy the Strategy to use or null to use the simple rules
 	 */
-	public int[] makeMove(Grid board, ArrayList<String> possibleSides)
+	public void setStrategy(Strategy strategy)
 	{
-		int[] moves = new int[3];
-		boolean boxFilled = false;
-		int check = 0;
-		// Check to see if there are three sides of a box that has been clicked
-		// There will be two checks if there is a box filled
-		do
-		{
-			check++;
-			for (int row = 0; row < 8; row++)
-			{
-				for (int col = 0; col < 8; col++)
-				{
-					int sidesClicked = (board.getBoard())[row][col]
-							.sidesClicked();
-					// If there are 3 sides filled, fill in the box
-					if (sidesClicked == 3)
-					{
-						// If there is a box filled make it true
-						boxFilled = true;
-						int sideToTake = (board.getBoard())[row][col]
-								.sideToTake();
-						int score = board.updateBoxComputer(row, col,
-								sideToTake, this.playerNo);
-						// If a box is filled, add it the the score
-						if (score > 0)
-							this.addScore(score);
-					}
-				}
-			}
-		}
-		while (boxFilled && check < 3);
-
-		// Make a copy of the original array
-		movesPossible = new ArrayList<String>(possibleSides);
+		this.strategy = strategy;
+	}
 
-		// Check the entire array and remove sides that would result to a box to
-		// have
-		// 3 sides filled if clicked
-		for (String nextSide : possibleSides)
-		{
-			int row = nextSide.charAt(0) - '0';
-			int col = nextSide.charAt(2) - '0';
-			int sideChosen = nextSide.charAt(4) - '0';
-			int sidesClicked = (board.getBoard())[row][col].sidesClicked();
-			if (sidesClicked < 2)
-			{
-				if (sideChosen == 1 && row > 0)
-					// Check to see if box above has 2 sides clicked
-					if ((board.getBoard())[row - 1][col].sidesClicked() >= 2)
-						movesPossible.remove(row + "," + col + ",1");
+	/**
+	 * Sets the random numbers used to pick safe moves, so a game can be
+	 * played again the same way. Each thread should give its players their
+	 * own random numbers.
+	 * @param random the random numbers to use
+	 */
+	public void setRandom(SplittableRandom random)
+	{
+		this.random = random;
+	}
 
-				if (sideChosen == 3 && col > 0)
-				{
-					// Check to see if box to left has 2 sides clicked
-					if ((board.getBoard())[row][col - 1].sidesClicked() >= 2)
-						movesPossible.remove(row + "," + col + ",3");
-				}
-			}
-			else
-			{
-				// If the box has more than 2 sides filled, remove all the
-				// available sides
-				for (int side = 1; side <= 4; side++)
-				{
-					int indexOf = movesPossible.indexOf(row + "," + col + ","
-							+ side);
-					if (indexOf >= 0)
-						movesPossible.remove(indexOf);
-				}
-			}
-		}
+	/**
+	 * Gets how the computer chooses its moves
+	 * @return the Strategy or null if the simple rules are used
+	 */
+	public Strategy getStrategy()
+	{
+		return strategy;
+	}
 
-		String moveToMake;
-		// If there are available sides in array use those to calculate next
-		// move
-		if (movesPossible.size() > 0)
+	/**
+	 * Generate a move the computer can make. Uses the Strategy if there is
+	 * one and it has a move, otherwise takes a box if it can and then picks
+	 * a random safe move. The board is not changed, so the move can be
+	 * chosen on a copy of the board in another thread.
+	 * @param board the board the game is on
+	 * @return the packed move the player chooses or Move.NONE if every box
+	 * 			has been filled
+	 */
+	public int makeMove(Grid board)
+	{
+		BitBoard state = board.getState();
+		if (strategy != null)
 		{
-			int randomSide = (int) (Math.random() * movesPossible.size());
-			moveToMake = movesPossible.get(randomSide);
+			int move = strategy.chooseMove(board, this.playerNo);
+			if (move != Move.NONE || state.isFull())
+				return move;
 		}
-		else
+
+		if (endgame == null)
+			endgame = new EndgameSolver();
+		if (random == null)
+			random = new SplittableRandom();
+		// Fill in any box that has three sides clicked, unless the last
+		// boxes of a chain should be left to the other player. Filling a box
+		// gives the player another move, so the next box is filled then
+		MoveList capturableBoxes = state.capturableBoxes();
+		if (capturableBoxes.size() > 0)
 		{
-			// If not check to see which move would result to the fewest boxes
-			// formed
-			moveToMake = fewestBoxes(possibleSides, board);
+			int decline = endgame.declineMove(state);
+			if (decline >= 0)
+				return state.move(decline);
+			return state.move(state.freeEdge(capturableBoxes.get(0)));
 		}
-		moves[0] = moveToMake.charAt(0) - '0';
-		moves[1] = moveToMake.charAt(2) - '0';
-		moves[2] = moveToMake.charAt(4) - '0';
-
-		// remove the side from the array
-		possibleSides.remove(moveToMake);
 
-		return moves;
+		// If there are sides that would not result in a box having 3 sides
+		// filled if clicked, pick one of those
+		MoveList safeMoves = state.safeEdges();
+		if (safeMoves.size() > 0)
+			return state.move(safeMoves.get(random.nextInt(safeMoves.size())));
+		// If not open the chain the EndgameSolver chooses, or check to see
+		// which move would result to the fewest boxes formed
+		int opening = endgame.bestMove(state);
+		if (opening >= 0)
+			return state.move(opening);
+		return fewestBoxes(board);
 	}
 
 	/**
-	 * To find the move the computer shall choose to make the player fill least boxes
-	 * @param possibleMoves the possible moves the computer can make
+	 * To find the move the computer shall choose to make the player fill least
+	 * boxes. Each move is played on a copy of the board and the other player
+	 * fills every box they can. The moves are split between the threads of a
+	 * ForkJoinPool, each with its own copy of the board. If moves give away
+	 * the same number of boxes the first one in the list of possible moves is
+	 * chosen, so the move does not depend on how the work was split.
 	 * @param board the board the game is working on
-	 * @return the move the computer shall choose to make the player fill least boxes
+	 * @return the move the computer shall choose to make the player fill least
+	 * 			boxes or Move.NONE if there are no moves left
 	 */
-	public String fewestBoxes(ArrayList<String> possibleMoves, Grid board)
+	public int fewestBoxes(Grid board)
 	{
-		fewestBoxes = 1000;
-		int boxesFilled = 0;
+		BitBoard state = board.getState();
+		MoveList possibleMoves = board.possibleMoves();
+		int[] edges = new int[possibleMoves.size()];
+		if (edges.length == 0)
+			return Move.NONE;
+		for (int index = 0; index < edges.length; index++)
+			edges[index] = possibleMoves.get(index);
 
-		// Make copy of the original possibleMoves
-		ArrayList<String> movesPossible = new ArrayList<String>(possibleMoves);
+		// Give every thread a few tasks so they can share the work evenly
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int taskSize = Math.max(MIN_TASK_SIZE, edges.length
+				/ (4 * pool.getParallelism()));
+		FewestBoxesTask task = new FewestBoxesTask(state, edges, 0,
+				edges.length, taskSize, this.playerNo);
+		long best;
+		if (edges.length <= taskSize)
+			best = task.compute();
+		else
+			best = pool.invoke(task);
+		return state.move(edges[(int) best]);
+	}
 
-		// Go through all the possibleMoves
-		for (int nextMove = 0; nextMove < movesPossible.size(); nextMove++)
+	/**
+	 * Finds the move that gives away the fewest boxes in part of a list of
+	 * moves. The result is the number of boxes given away shifted left 32
+	 * bits plus the position of the move in the list, so the smallest result
+	 * is the best move and the first of any moves that are equally good.
+	 */
+	private static class FewestBoxesTask extends RecursiveTask<Long>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final BitBoard state;
+		private final int[] edges;
+		private final int from;
+		private final int to;
+		private final int taskSize;
+		private final int player;
+
+		/**
+		 * Constructs a task to check some of the moves
+		 * @param state the board the game is on, which is not changed
+		 * @param edges the moves to choose from
+		 * @param from the position of the first move to check
+		 * @param to the position after the last move to check
+		 * @param taskSize the most moves to check without splitting the task
+		 * @param player the player making the move
+		 */
+		FewestBoxesTask(BitBoard state, int[] edges, int from, int to,
+				int taskSize, int player)
 		{
-			String theNextMove = movesPossible.get(nextMove);
-			Grid copyBoard = new Grid(board.getBoard());
-			
-			//Get the row, column and side from the String
-			int row = theNextMove.charAt(0) - '0';
-			int col = theNextMove.charAt(2) - '0';
-			int side = theNextMove.charAt(4) - '0';
-			copyBoard.updateBoardComputer(row, col, side, this.playerNo);
+			this.state = state;
+			this.edges = edges;
+			this.from = from;
+			this.to = to;
+			this.taskSize = taskSize;
+			this.player = player;
+		}
 
-			//Make two rounds of checking through the board
-			for (int check = 0; check <= 2; check++)
+		/**
+		 * Checks the moves, splitting them in half between two tasks if
+		 * there are too many
+		 * @return the best move and the number of boxes it gives away
+		 */
+		protected Long compute()
+		{
+			if (to - from <= taskSize)
+				return checkMoves();
+			int middle = (from + to) >>> 1;
+			FewestBoxesTask first = new FewestBoxesTask(state, edges, from,
+					middle, taskSize, player);
+			first.fork();
+			long second = new FewestBoxesTask(state, edges, middle, to,
+					taskSize, player).compute();
+			return Math.min(first.join(), second);
+		}
+
+		/**
+		 * Plays each move on a copy of the board and lets the other player
+		 * fill every box they can
+		 * @return the best move and the number of boxes it gives away
+		 */
+		private long checkMoves()
+		{
+			BitBoard scratch = new BitBoard(state);
+			MoveList capturableBoxes = scratch.capturableBoxes();
+			long best = Long.MAX_VALUE;
+			for (int index = from; index < to; index++)
 			{
-				for (int rows = 0; rows < 8; rows++)
-				{
-					for (int cols = 0; cols < 8; cols++)
+				int boxesGiven = 0;
+				int movesMade = 1;
+				// A move that fills a box gives nothing away
+				if (scratch.play(edges[index], player) == 0)
+					while (capturableBoxes.size() > 0)
 					{
-						int sidesClicked = (copyBoard.getBoard())[rows][cols]
-								.sidesClicked();
-						if (sidesClicked == 3)
-						{
-							int sideToClick = (copyBoard.getBoard())[rows][cols]
-									.sideToTake();
-							int filledBoxes = copyBoard.updateBoardComputer(
-									rows, cols, sideToClick, this.playerNo);
-							if (filledBoxes > 0)
-								boxesFilled += filledBoxes;
-						}
+						boxesGiven += scratch.play(scratch
+								.freeEdge(capturableBoxes.get(0)), -player);
+						movesMade++;
 					}
-				}
-			}
-			
-			//Compare the current number of filled boxes with historical lowest boxes and update the record if needed
-			if (boxesFilled < fewestBoxes)
-			{
-				fewestBoxes = boxesFilled;
-				lowestBoxes = theNextMove;
+				for (; movesMade > 0; movesMade--)
+					scratch.undo();
+				best = Math.min(best, (long) boxesGiven << 32 | index);
 			}
-			boxesFilled = 0;
+			return best;
 		}
-
-		return lowestBoxes;
 	}
-
 }
\ No newline at end of file
@@ -0,0 +1,228 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Lets another Strategy think while the other player is thinking
+ * (pondering). After the computer moves, ponder starts a background thread
+ * that guesses the other player's move with the same Strategy, then works
+ * out the computer's answer to that move, and then to every other move the
+ * other player could make, one after another. The answers are remembered by
+ * the hash of the position. When the other player moves and the computer is
+ * asked for its move, the background thread is stopped and the remembered
+ * answer is played at once. If the move was not thought about yet the
+ * Strategy chooses the move as usual, and a SearchStrategy still finds the
+ * positions it already searched in its table. Includes a constructor to
+ * ponder with another Strategy, chooseMove to pick a move, ponder to start
+ * thinking during the other player's turn, stop to stop thinking, close to
+ * stop thinking and let go of the background thread and the threads of the
+ * other Strategy, and
+ * getAnswersUsed to see how many moves were answered at once.
+ */
+public class PonderingStrategy implements Strategy
+{
+	// How long to wait between asking the background thread to stop, in
+	// milliseconds
+	private final static long STOP_INTERVAL = 10;
+
+	private final Strategy strategy;
+	private final ConcurrentHashMap<Long, Integer> answers;
+	private ExecutorService executor;
+	private Future<?> pondering;
+	private volatile boolean cancelled;
+	private int answersUsed;
+
+	/**
+	 * Constructs a Strategy that ponders with another Strategy
+	 * @param strategy the Strategy that chooses the moves
+	 */
+	public PonderingStrategy(Strategy strategy)
+	{
+		this.strategy = strategy;
+		answers = new ConcurrentHashMap<Long, Integer>();
+	}
+
+	/**
+	 * Chooses the next move for a player. Stops pondering and plays the
+	 * answer worked out for the position if there is one.
+	 * @param grid the board the game is on
+	 * @param player 1 for the superhero or -1 for the villain
+	 * @return the packed move to make or Move.NONE if every box has been
+	 * 			filled
+	 */
+	public int chooseMove(Grid grid, int player)
+	{
+		stopPondering();
+		BitBoard board = grid.getState();
+		Integer answer = board.toMove() == player ? answers.get(board.hash())
+				: null;
+		answers.clear();
+		if (answer != null && !board.isTaken(board.edgeOf(answer)))
+		{
+			answersUsed++;
+			return answer;
+		}
+		return strategy.chooseMove(grid, player);
+	}
+
+	/**
+	 * Starts thinking about the computer's answers to the moves the other
+	 * player can make. Any earlier pondering is stopped first.
+	 * @param grid the board the game is on, which is copied
+	 * @param player the computer player, who moves after the other player
+	 */
+	public void ponder(Grid grid, final int player)
+	{
+		stopPondering();
+		answers.clear();
+		if (grid.isGameOver())
+			return;
+		final Grid copy = new Grid(grid);
+		copy.getState().setToMove(-player);
+		cancelled = false;
+		if (executor == null)
+			executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+			{
+				public Thread newThread(Runnable task)
+				{
+					Thread thread = new Thread(task, "Ponder thread");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+		pondering = executor.submit(new Runnable()
+		{
+			public void run()
+			{
+				think(copy, player);
+			}
+		});
+	}
+
+	/**
+	 * Stops pondering and any chooseMove of the Strategy running in another
+	 * thread
+	 */
+	public void stop()
+	{
+		cancelled = true;
+		strategy.stop();
+	}
+
+	/**
+	 * Stops pondering, waits for it and shuts down the background thread
+	 * and the threads of the Strategy it ponders with. A new background
+	 * thread is started if ponder is called again.
+	 */
+	public void close()
+	{
+		stopPondering();
+		answers.clear();
+		if (executor != null)
+		{
+			executor.shutdownNow();
+			executor = null;
+		}
+		strategy.close();
+	}
+
+	/**
+	 * Returns the number of moves that were played from the answers worked
+	 * out while pondering
+	 * @return the number of moves
+	 */
+	public int getAnswersUsed()
+	{
+		return answersUsed;
+	}
+
+	/**
+	 * Works out the computer's answers, starting with the move the other
+	 * player is most likely to make, until every move has an answer or
+	 * pondering is stopped. Moves that fill a box are skipped because the
+	 * other player moves again after them.
+	 * @param grid a copy of the board with the other player to move
+	 * @param player the computer player
+	 */
+	private void think(Grid grid, int player)
+	{
+		BitBoard board = grid.getState();
+		// A Strategy without a move of its own leaves the guess to the
+		// order of the moves
+		int guessMove = strategy.chooseMove(grid, -player);
+		int guess = guessMove == Move.NONE ? -1 : board.edgeOf(guessMove);
+		if (guess >= 0)
+			answer(grid, guess, player);
+		MoveList freeEdges = board.freeEdges();
+		int[] edges = new int[freeEdges.size()];
+		for (int index = 0; index < edges.length; index++)
+			edges[index] = freeEdges.get(index);
+		for (int index = 0; index < edges.length && !cancelled; index++)
+			if (edges[index] != guess)
+				answer(grid, edges[index], player);
+	}
+
+	/**
+	 * Works out and remembers the computer's answer to one move of the
+	 * other player
+	 * @param grid a copy of the board with the other player to move
+	 * @param edge the edge the other player takes
+	 * @param player the computer player
+	 */
+	private void answer(Grid grid, int edge, int player)
+	{
+		if (cancelled)
+			return;
+		BitBoard board = grid.getState();
+		int filled = board.play(edge, -player);
+		if (filled == 0)
+		{
+			long hash = board.hash();
+			int move = strategy.chooseMove(grid, player);
+			// An answer cut short, or no answer, is not remembered
+			if (!cancelled && move != Move.NONE)
+				answers.put(hash, move);
+		}
+		if (filled >= 0)
+			board.undo();
+	}
+
+	/**
+	 * Stops the background thread and waits for it. The Strategy is asked
+	 * to stop again while waiting, in case it started a new move just after
+	 * it was asked the first time.
+	 */
+	private void stopPondering()
+	{
+		if (pondering == null)
+			return;
+		while (!pondering.isDone())
+		{
+			stop();
+			try
+			{
+				pondering.get(STOP_INTERVAL, TimeUnit.MILLISECONDS);
+			}
+			catch (TimeoutException exp)
+			{
+				// Ask again
+			}
+			catch (InterruptedException exp)
+			{
+				Thread.currentThread().interrupt();
+				break;
+			}
+			catch (ExecutionException exp)
+			{
+				throw new IllegalStateException(exp.getCause());
+			}
+		}
+		pondering = null;
+	}
+}
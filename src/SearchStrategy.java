@@ -0,0 +1,629 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Chooses the computer's moves by searching ahead. Uses negamax with
+ * alpha-beta pruning and iterative deepening: the moves are searched one
+ * move deep, then two, and so on until the time or the number of positions
+ * allowed for the move runs out, and the best move of the deepest search
+ * that was finished is played. A player who fills a box moves again, so a
+ * move that fills a box is followed by another move of the same player.
+ * Positions at the end of the search are scored by taking every box that can
+ * be taken and then estimating how the chains on the board will be shared.
+ * The results of positions are kept in a TranspositionTable so a position
+ * reached by a different order of moves is not searched again, and the best
+ * move found for a position is tried first the next time. The search can use
+ * more than one thread: the extra threads search the same position on their
+ * own copies of the board, starting at different depths and moves, and share
+ * the table with the main thread, so the main thread finds many of its
+ * positions already searched. Once no safe moves are left the EndgameSolver
+ * scores positions exactly. Includes constructors for the default budget and
+ * for a given budget, table size and number of threads, chooseMove to pick a
+ * move, stop to cut the search short, close to let go of the helper threads,
+ * getDepth and getNodes to see how far the last search went, getThreads to
+ * return the number of threads, and getTable to return the table.
+ */
+public class SearchStrategy implements Strategy
+{
+	// The default time the computer can spend on a move, in milliseconds
+	public final static long DEFAULT_TIME_LIMIT = 500;
+
+	// Larger than any score
+	private final static int INFINITY = 1000000000;
+
+	private final long timeLimit;
+	private final long nodeLimit;
+	private final TranspositionTable table;
+	private final EndgameSolver solver;
+
+	// The threads that help the main thread, and the search they help
+	private final int threads;
+	private final int helperNo;
+	private final SearchStrategy leader;
+	private SearchStrategy[] helpers;
+	private ExecutorService executor;
+	private volatile boolean finished;
+	private volatile boolean cancelled;
+
+	// The board being searched and the moves at each ply
+	private BitBoard board;
+	private int[][] moves;
+
+	// Information about the current search
+	private long deadline;
+	private long nodes;
+	private boolean stopped;
+	private boolean estimated;
+	private int depth;
+
+	/**
+	 * Constructs a search that spends up to DEFAULT_TIME_LIMIT on a move
+	 */
+	public SearchStrategy()
+	{
+		this(DEFAULT_TIME_LIMIT, 0);
+	}
+
+	/**
+	 * Constructs a search with the given budget for each move and a table of
+	 * the default size
+	 * @param timeLimit the most time to spend on a move in milliseconds, or
+	 * 			0 for no limit
+	 * @param nodeLimit the most positions to search for a move, or 0 for no
+	 * 			limit
+	 */
+	public SearchStrategy(long timeLimit, long nodeLimit)
+	{
+		this(timeLimit, nodeLimit, TranspositionTable.DEFAULT_MEMORY, 1);
+	}
+
+	/**
+	 * Constructs a search with the given budget for each move, the given most
+	 * memory for its table and the given number of threads
+	 * @param timeLimit the most time to spend on a move in milliseconds, or
+	 * 			0 for no limit
+	 * @param nodeLimit the most positions the main thread can search for a
+	 * 			move, or 0 for no limit
+	 * @param tableBytes the most memory the table can use, in bytes
+	 * @param threads the number of threads to search with
+	 */
+	public SearchStrategy(long timeLimit, long nodeLimit, long tableBytes,
+			int threads)
+	{
+		if (timeLimit <= 0 && nodeLimit <= 0)
+			throw new IllegalArgumentException(
+					"A search needs a time limit or a node limit");
+		if (threads < 1)
+			throw new IllegalArgumentException(
+					"A search needs at least one thread");
+		this.timeLimit = timeLimit;
+		this.nodeLimit = nodeLimit;
+		this.threads = threads;
+		table = new TranspositionTable(tableBytes);
+		solver = new EndgameSolver();
+		helperNo = 0;
+		leader = this;
+		moves = new int[16][];
+	}
+
+	/**
+	 * Constructs a helper for another search that shares its table and stops
+	 * when it finishes
+	 * @param leader the search to help
+	 * @param helperNo the number of the helper, starting at 1
+	 */
+	private SearchStrategy(SearchStrategy leader, int helperNo)
+	{
+		timeLimit = leader.timeLimit;
+		nodeLimit = 0;
+		threads = 1;
+		table = leader.table;
+		solver = new EndgameSolver();
+		this.helperNo = helperNo;
+		this.leader = leader;
+		moves = new int[16][];
+	}
+
+	/**
+	 * Returns the depth of the deepest search that was finished for the last
+	 * move
+	 * @return the depth in moves
+	 */
+	public int getDepth()
+	{
+		return depth;
+	}
+
+	/**
+	 * Returns the number of positions searched for the last move
+	 * @return the number of positions
+	 */
+	public long getNodes()
+	{
+		long total = nodes;
+		if (helpers != null)
+			for (int index = 0; index < helpers.length; index++)
+				total += helpers[index].nodes;
+		return total;
+	}
+
+	/**
+	 * Returns the number of threads the search uses
+	 * @return the number of threads
+	 */
+	public int getThreads()
+	{
+		return threads;
+	}
+
+	/**
+	 * Returns the table of positions that have been searched
+	 * @return the transposition table
+	 */
+	public TranspositionTable getTable()
+	{
+		return table;
+	}
+
+	/**
+	 * Chooses the next move for a player by searching deeper and deeper until
+	 * the budget runs out or the result of the game is known
+	 * @param grid the board the game is on
+	 * @param player 1 for the superhero or -1 for the villain
+	 * @return the packed move to make or Move.NONE if every box has been
+	 * 			filled
+	 */
+	public int chooseMove(Grid grid, int player)
+	{
+		deadline = System.nanoTime() + timeLimit * 1000000;
+		cancelled = false;
+		board = new BitBoard(grid.getState());
+		board.setToMove(player);
+		nodes = 0;
+		depth = 0;
+		stopped = false;
+		table.newSearch();
+
+		int count = generateMoves(0);
+		if (count == 0)
+		{
+			board = null;
+			return Move.NONE;
+		}
+		if (count > 1)
+		{
+			finished = false;
+			Future<?>[] running = startHelpers(player);
+			deepen(player, count, 1);
+			finished = true;
+			waitFor(running);
+		}
+		int move = board.move(moves[0][0]);
+		board = null;
+		return move;
+	}
+
+	/**
+	 * Stops the search that is running in another thread. The helpers stop
+	 * with it.
+	 */
+	public void stop()
+	{
+		cancelled = true;
+	}
+
+	/**
+	 * Stops the search and shuts down the helper threads, which would
+	 * otherwise keep this search and its table alive after the game is
+	 * over. New helpers are started if chooseMove is called again.
+	 */
+	public void close()
+	{
+		cancelled = true;
+		if (executor != null)
+		{
+			executor.shutdown();
+			executor = null;
+			helpers = null;
+		}
+	}
+
+	/**
+	 * Searches deeper and deeper from the root until the search is stopped
+	 * or every line has been searched to the end of the game. The best move
+	 * is kept at the front of the root moves.
+	 * @param player the player to move
+	 * @param count the number of root moves
+	 * @param firstDepth the depth of the first search
+	 */
+	private void deepen(int player, int count, int firstDepth)
+	{
+		int[] rootMoves = moves[0];
+		int remaining = board.freeEdges().size();
+		for (int nextDepth = firstDepth; nextDepth <= remaining; nextDepth++)
+		{
+			estimated = false;
+			int bestIndex = searchRoot(player, nextDepth, count);
+			// Keep the best move of an unfinished search only if it beat the
+			// best move of the last search, which is always searched first
+			if (bestIndex >= 0)
+				moveToFront(rootMoves, count, rootMoves[bestIndex]);
+			if (stopped)
+				break;
+			depth = nextDepth;
+			// Stop once every line has been searched to the end of the game
+			if (!estimated)
+				break;
+		}
+	}
+
+	/**
+	 * Starts the helpers searching the same position as the main thread.
+	 * Each helper starts with a different root move, and every second
+	 * helper starts one move deeper, so they do not all search the same
+	 * positions at the same time.
+	 * @param player the player to move
+	 * @return the helpers that were started
+	 */
+	private Future<?>[] startHelpers(final int player)
+	{
+		Future<?>[] running = new Future<?>[threads - 1];
+		if (threads == 1)
+			return running;
+		if (executor == null)
+		{
+			helpers = new SearchStrategy[threads - 1];
+			for (int index = 0; index < helpers.length; index++)
+				helpers[index] = new SearchStrategy(this, index + 1);
+			executor = Executors.newFixedThreadPool(threads - 1,
+					new ThreadFactory()
+					{
+						public Thread newThread(Runnable task)
+						{
+							Thread thread = new Thread(task, "Search helper");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+		for (int index = 0; index < helpers.length; index++)
+		{
+			final SearchStrategy helper = helpers[index];
+			helper.board = new BitBoard(board);
+			helper.deadline = deadline;
+			helper.nodes = 0;
+			helper.depth = 0;
+			helper.stopped = false;
+			running[index] = executor.submit(new Runnable()
+			{
+				public void run()
+				{
+					helper.help(player);
+				}
+			});
+		}
+		return running;
+	}
+
+	/**
+	 * Searches as a helper until the main thread finishes
+	 * @param player the player to move
+	 */
+	private void help(int player)
+	{
+		int count = generateMoves(0);
+		if (count > 0)
+		{
+			int[] rootMoves = moves[0];
+			moveToFront(rootMoves, count, rootMoves[helperNo % count]);
+			deepen(player, count, 1 + helperNo % 2);
+		}
+		board = null;
+	}
+
+	/**
+	 * Waits for the helpers to stop
+	 * @param running the helpers that were started
+	 */
+	private void waitFor(Future<?>[] running)
+	{
+		for (int index = 0; index < running.length; index++)
+		{
+			try
+			{
+				running[index].get();
+			}
+			catch (InterruptedException exp)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException exp)
+			{
+				throw new IllegalStateException(exp.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Searches every move at the root
+	 * @param player the player to move
+	 * @param depth the number of moves to search
+	 * @param count the number of root moves
+	 * @return the index of the best move or -1 if the search was stopped
+	 * 			before the first move was searched
+	 */
+	private int searchRoot(int player, int depth, int count)
+	{
+		int[] rootMoves = moves[0];
+		int alpha = -INFINITY;
+		int bestIndex = -1;
+		for (int index = 0; index < count; index++)
+		{
+			int value = tryMove(rootMoves[index], player, depth, alpha,
+					INFINITY, 1);
+			if (stopped)
+				break;
+			if (value > alpha)
+			{
+				alpha = value;
+				bestIndex = index;
+			}
+		}
+		return bestIndex;
+	}
+
+	/**
+	 * Searches a position with negamax and alpha-beta pruning
+	 * @param player the player to move
+	 * @param depth the number of moves left to search
+	 * @param alpha the score the player to move is already sure of
+	 * @param beta the score the other player is already sure of
+	 * @param ply the number of moves from the root
+	 * @return the number of boxes the player to move will fill from here
+	 * 			minus the number the other player will fill
+	 */
+	private int search(int player, int depth, int alpha, int beta, int ply)
+	{
+		if (board.isFull())
+			return 0;
+		nodes++;
+		if ((nodeLimit > 0 && nodes >= nodeLimit)
+				|| (timeLimit > 0 && System.nanoTime() >= deadline)
+				|| leader.finished || leader.cancelled)
+			stopped = true;
+		if (stopped)
+			return 0;
+		if (depth == 0)
+			return quiesce(player);
+
+		// Use the result of an earlier search of the position if it went deep
+		// enough, otherwise try its best move first
+		long hash = board.hash();
+		long entry = table.probe(hash);
+		int hashMove = -1;
+		if (entry != 0)
+		{
+			hashMove = TranspositionTable.bestMove(entry);
+			int entryDepth = TranspositionTable.depth(entry);
+			if (entryDepth >= depth)
+			{
+				int value = TranspositionTable.value(entry);
+				int bound = TranspositionTable.bound(entry);
+				if (bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER_BOUND && value >= beta)
+						|| (bound == TranspositionTable.UPPER_BOUND && value <= alpha))
+				{
+					if (entryDepth != TranspositionTable.SOLVED)
+						estimated = true;
+					return value;
+				}
+			}
+		}
+
+		int count = generateMoves(ply);
+		int[] list = moves[ply];
+		if (hashMove >= 0)
+			moveToFront(list, count, hashMove);
+		boolean estimatedBefore = estimated;
+		estimated = false;
+		int originalAlpha = alpha;
+		int best = -INFINITY;
+		int bestMove = -1;
+		for (int index = 0; index < count; index++)
+		{
+			int value = tryMove(list[index], player, depth, alpha, beta, ply);
+			if (stopped)
+				return 0;
+			if (value > best)
+			{
+				best = value;
+				bestMove = list[index];
+				if (value > alpha)
+				{
+					alpha = value;
+					if (alpha >= beta)
+						break;
+				}
+			}
+		}
+
+		// Remember the result, as solved if no position below was estimated
+		int bound = TranspositionTable.EXACT;
+		if (best <= originalAlpha)
+			bound = TranspositionTable.UPPER_BOUND;
+		else if (best >= beta)
+			bound = TranspositionTable.LOWER_BOUND;
+		table.store(hash, best, estimated ? depth
+				: TranspositionTable.SOLVED, bound, bestMove);
+		estimated |= estimatedBefore;
+		return best;
+	}
+
+	/**
+	 * Moves an edge to the front of a list of moves if it is in the list
+	 * @param list the moves
+	 * @param count the number of moves in the list
+	 * @param edge the edge to move
+	 */
+	private void moveToFront(int[] list, int count, int edge)
+	{
+		for (int index = 0; index < count; index++)
+			if (list[index] == edge)
+			{
+				System.arraycopy(list, 0, list, 1, index);
+				list[0] = edge;
+				return;
+			}
+	}
+
+	/**
+	 * Makes a move, searches the position after it and undoes it again. The
+	 * player keeps the turn if the move fills a box.
+	 * @param edge the edge to take
+	 * @param player the player making the move
+	 * @param depth the number of moves left to search including this one
+	 * @param alpha the score the player to move is already sure of
+	 * @param beta the score the other player is already sure of
+	 * @param ply the number of moves from the root after this move
+	 * @return the score of the move for the player making it
+	 */
+	private int tryMove(int edge, int player, int depth, int alpha, int beta,
+			int ply)
+	{
+		int filled = board.play(edge, player);
+		int value;
+		if (filled > 0)
+			value = filled + search(player, depth - 1, alpha - filled, beta
+					- filled, ply + 1);
+		else
+			value = -search(-player, depth - 1, -beta, -alpha, ply + 1);
+		board.undo();
+		return value;
+	}
+
+	/**
+	 * Scores a position at the end of the search. Every box that can be
+	 * taken is taken first so a position is never scored in the middle of a
+	 * chain. The score is only an estimate if boxes were taken, since leaving
+	 * the last boxes of a chain could have been better.
+	 * @param player the player to move
+	 * @return the estimated score for the player to move
+	 */
+	private int quiesce(int player)
+	{
+		int gained = 0;
+		int taken = 0;
+		MoveList capturableBoxes = board.capturableBoxes();
+		while (capturableBoxes.size() > 0)
+		{
+			gained += board.play(board.freeEdge(capturableBoxes.get(0)),
+					player);
+			taken++;
+		}
+		int value = board.isFull() ? 0 : evaluate();
+		if (taken > 0 && !board.isFull())
+			estimated = true;
+		for (; taken > 0; taken--)
+			board.undo();
+		return gained + value;
+	}
+
+	/**
+	 * Estimates the score of a position where no box can be taken. While
+	 * there are safe moves left nothing is known. Once every move gives boxes
+	 * away the EndgameSolver works out the exact score if it can. Otherwise
+	 * the player to move has to open a chain: the chains of one or two boxes
+	 * are given away in turn, and the player who gets the first long chain
+	 * keeps control by giving back two boxes of every long chain and four of
+	 * every loop except the last.
+	 * @return the estimated score for the player to move
+	 */
+	private int evaluate()
+	{
+		if (board.safeEdges().size() > 0)
+		{
+			estimated = true;
+			return 0;
+		}
+		int exact = solver.value(board);
+		if (exact != EndgameSolver.UNSOLVED)
+			return exact;
+		estimated = true;
+		ChainTracker tracker = board.chainTracker();
+		int singles = tracker.shortChains(1);
+		int doubles = tracker.shortChains(2);
+		int longChains = tracker.longChains();
+		int loops = tracker.loops();
+
+		// The short chains are given away smallest first, each player in turn
+		int value = 0;
+		int sign = -1;
+		for (int count = 0; count < singles + doubles; count++)
+		{
+			value += sign * (count < singles ? 1 : 2);
+			sign = -sign;
+		}
+		if (longChains + loops == 0)
+			return value;
+
+		// The player who opens the first long chain loses control
+		int controlled = tracker.longBoxes() - 4 * longChains - 8 * loops
+				+ (longChains > 0 ? 4 : 8);
+		return value + sign * controlled;
+	}
+
+	/**
+	 * Lists the moves worth searching in the current position. If a box can
+	 * be taken only the capturing moves of the ChainTracker are listed.
+	 * Otherwise every move is listed with the safe moves first and the moves
+	 * that give away the fewest boxes next.
+	 * @param ply the number of moves from the root
+	 * @return the number of moves listed
+	 */
+	private int generateMoves(int ply)
+	{
+		int[] list = moveList(ply);
+		ChainTracker tracker = board.chainTracker();
+		int count = tracker.capturingMoves(list);
+		if (count > 0)
+			return count;
+
+		MoveList safeEdges = board.safeEdges();
+		for (int index = 0; index < safeEdges.size(); index++)
+			list[count++] = safeEdges.get(index);
+		MoveList freeEdges = board.freeEdges();
+		for (int pass = 0; pass < 2; pass++)
+			for (int index = 0; index < freeEdges.size(); index++)
+			{
+				int edge = freeEdges.get(index);
+				if (safeEdges.contains(edge))
+					continue;
+				boolean small = tracker.sacrificeCost(edge) <= 2;
+				if (small == (pass == 0))
+					list[count++] = edge;
+			}
+		return count;
+	}
+
+	/**
+	 * Returns the array that holds the moves at a ply, making it the first
+	 * time it is needed
+	 * @param ply the number of moves from the root
+	 * @return the array of moves
+	 */
+	private int[] moveList(int ply)
+	{
+		if (ply >= moves.length)
+		{
+			int[][] bigger = new int[moves.length * 2][];
+			System.arraycopy(moves, 0, bigger, 0, moves.length);
+			moves = bigger;
+		}
+		if (moves[ply] == null || moves[ply].length < board.edgeCount())
+			moves[ply] = new int[board.edgeCount()];
+		return moves[ply];
+	}
+}
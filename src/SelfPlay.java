@@ -0,0 +1,224 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays computer against computer games without opening a window, to check
+ * how changes to the computer players play over many games. The games are
+ * split between several threads, each with its own players and its own
+ * random numbers split from one seed, so the simple players play the same
+ * games every time with the same seed and number of threads. Two ways of
+ * playing can be pitted against each other: the first plays the superhero
+ * in even games and the villain in odd games. A way of playing is "easy" for
+ * the simple rules, "search" or "search:time:threads" for a SearchStrategy
+ * and "mcts" or "mcts:time:threads" for an MctsStrategy, with the time in
+ * milliseconds a move. Reports the games played each second, the wins of
+ * each side and each way of playing, and how many turns the games took.
+ * Run it with the rows, columns and number of games, and if wanted the
+ * number of threads, the seed and the two ways of playing. Includes main to
+ * play the games, makeStrategy to make a way of playing from its name and
+ * playGame to play one game.
+ */
+public class SelfPlay
+{
+	// The most bars in the chart of game lengths
+	private final static int MAX_BARS = 20;
+
+	/**
+	 * Plays the games and prints the results
+	 * @param args the rows, columns, games, threads, seed and the two ways
+	 * 			of playing
+	 */
+	public static void main(String[] args) throws InterruptedException
+	{
+		if (args.length < 3)
+		{
+			System.out.println("Usage: java SelfPlay rows cols games "
+					+ "[threads] [seed] [first] [second]");
+			return;
+		}
+		final int rows = Integer.parseInt(args[0]);
+		final int cols = Integer.parseInt(args[1]);
+		final int games = Integer.parseInt(args[2]);
+		final int threads = args.length > 3 ? Integer.parseInt(args[3])
+				: Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : System
+				.nanoTime();
+		final String first = args.length > 5 ? args[5] : "easy";
+		final String second = args.length > 6 ? args[6] : first;
+		System.out.println("Playing " + games + " games of " + rows + " by "
+				+ cols + " on " + threads + " threads with seed " + seed
+				+ ": " + first + " against " + second);
+
+		// The results of every game: the superhero's score minus the
+		// villain's, and the number of turns
+		final int[] margins = new int[games];
+		final int[] turns = new int[games];
+		SplittableRandom seeds = new SplittableRandom(seed);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		Future<?>[] running = new Future<?>[threads];
+		long start = System.nanoTime();
+		for (int thread = 0; thread < threads; thread++)
+		{
+			final int firstGame = thread;
+			final SplittableRandom random = seeds.split();
+			running[thread] = executor.submit(new Runnable()
+			{
+				public void run()
+				{
+					Strategy[] strategies = { makeStrategy(first),
+							makeStrategy(second) };
+					Player superhero = new Player(0, 1);
+					Player villain = new Player(0, -1);
+					superhero.setRandom(random);
+					villain.setRandom(random);
+					for (int game = firstGame; game < games; game += threads)
+					{
+						superhero.setStrategy(strategies[game % 2]);
+						villain.setStrategy(strategies[1 - game % 2]);
+						Grid grid = new Grid(rows, cols);
+						turns[game] = playGame(grid, superhero, villain);
+						margins[game] = grid.calculateScore(1)
+								- grid.calculateScore(-1);
+					}
+					for (int index = 0; index < strategies.length; index++)
+						if (strategies[index] != null)
+							strategies[index].close();
+				}
+			});
+		}
+		try
+		{
+			for (int thread = 0; thread < threads; thread++)
+				running[thread].get();
+		}
+		catch (ExecutionException exp)
+		{
+			throw new IllegalStateException(exp.getCause());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		// Count the wins of each side and each way of playing
+		int superheroWins = 0;
+		int villainWins = 0;
+		int firstWins = 0;
+		int secondWins = 0;
+		int longest = 0;
+		long totalTurns = 0;
+		for (int game = 0; game < games; game++)
+		{
+			if (margins[game] > 0)
+				superheroWins++;
+			else if (margins[game] < 0)
+				villainWins++;
+			// The first way of playing is the superhero in even games
+			int firstMargin = game % 2 == 0 ? margins[game] : -margins[game];
+			if (firstMargin > 0)
+				firstWins++;
+			else if (firstMargin < 0)
+				secondWins++;
+			longest = Math.max(longest, turns[game]);
+			totalTurns += turns[game];
+		}
+		int draws = games - superheroWins - villainWins;
+		System.out.printf("%.1f games a second (%.2f s)%n", games / seconds,
+				seconds);
+		System.out.printf("Superhero %s  Villain %s  Draw %s%n", percent(
+				superheroWins, games), percent(villainWins, games), percent(
+				draws, games));
+		System.out.printf("%s %s  %s %s  Draw %s%n", first, percent(
+				firstWins, games), second, percent(secondWins, games),
+				percent(draws, games));
+
+		// Show how many games took each number of turns
+		int width = Math.max(1, (longest + MAX_BARS) / MAX_BARS);
+		int[] bars = new int[longest / width + 1];
+		for (int game = 0; game < games; game++)
+			bars[turns[game] / width]++;
+		int tallest = 0;
+		for (int bar = 0; bar < bars.length; bar++)
+			tallest = Math.max(tallest, bars[bar]);
+		System.out.printf("Turns a game: mean %.1f, longest %d%n",
+				(double) totalTurns / Math.max(games, 1), longest);
+		for (int bar = 0; bar < bars.length; bar++)
+			if (bars[bar] > 0)
+			{
+				StringBuilder line = new StringBuilder();
+				for (int star = 0; star < bars[bar] * 50 / tallest; star++)
+					line.append('*');
+				System.out.printf("%4d-%-4d %7d %s%n", bar * width, bar
+						* width + width - 1, bars[bar], line);
+			}
+	}
+
+	/**
+	 * Makes a way of playing from its name
+	 * @param name "easy", "search", "search:time:threads", "mcts" or
+	 * 			"mcts:time:threads"
+	 * @return the Strategy or null for the simple rules
+	 */
+	public static Strategy makeStrategy(String name)
+	{
+		String[] parts = name.split(":");
+		long timeLimit = parts.length > 1 ? Long.parseLong(parts[1])
+				: SearchStrategy.DEFAULT_TIME_LIMIT;
+		int threads = parts.length > 2 ? Integer.parseInt(parts[2]) : 1;
+		if (parts[0].equals("easy"))
+			return null;
+		if (parts[0].equals("search"))
+			return new SearchStrategy(timeLimit, 0,
+					TranspositionTable.DEFAULT_MEMORY, threads);
+		if (parts[0].equals("mcts"))
+			return new MctsStrategy(timeLimit, MctsStrategy.DEFAULT_TREE_SIZE,
+					threads);
+		throw new IllegalArgumentException("Unknown way of playing: " + name);
+	}
+
+	/**
+	 * Plays one game between two computer players. The superhero moves
+	 * first and a player who fills a box moves again.
+	 * @param grid the empty board, which is filled in
+	 * @param superhero the superhero player
+	 * @param villain the villain player
+	 * @return the number of turns the game took
+	 */
+	public static int playGame(Grid grid, Player superhero, Player villain)
+	{
+		int currentPlayer = 1;
+		int turns = 1;
+		grid.updateGrid(currentPlayer, 0);
+		while (!grid.isGameOver())
+		{
+			Player player = currentPlayer == 1 ? superhero : villain;
+			int move = player.makeMove(grid);
+			if (move == Move.NONE || grid.play(move, currentPlayer) < 0)
+				throw new IllegalStateException("No move for player "
+						+ currentPlayer);
+			if (grid.getState().toMove() != currentPlayer
+					&& !grid.isGameOver())
+			{
+				currentPlayer *= -1;
+				turns++;
+			}
+		}
+		return turns;
+	}
+
+	/**
+	 * Writes a count as a percentage of the games
+	 * @param count the count
+	 * @param games the number of games
+	 * @return the count and its percentage
+	 */
+	private static String percent(int count, int games)
+	{
+		return String.format("%d (%.1f%%)", count, 100.0 * count / Math.max(
+				games, 1));
+	}
+}
@@ -0,0 +1,34 @@
+/**
+ * A way for the computer player to choose its moves. A Player without a
+ * Strategy, or whose Strategy has no move to give, uses its own simple rules
+ * to pick a move. Includes chooseMove to pick the next move for a player,
+ * stop to cut a search short and close to let go of any threads it thinks
+ * with.
+ */
+public interface Strategy
+{
+	/**
+	 * Chooses the next move for a player. The board must be left the way it
+	 * was given.
+	 * @param board the board the game is on
+	 * @param player 1 for the superhero or -1 for the villain
+	 * @return the packed move to make or Move.NONE if every box has been
+	 * 			filled or the move is left to the Player
+	 */
+	int chooseMove(Grid board, int player);
+
+	/**
+	 * Stops a chooseMove that is running in another thread as soon as it
+	 * can. The stopped chooseMove still returns the best move found so far.
+	 */
+	void stop();
+
+	/**
+	 * Stops any search and shuts down the threads the Strategy uses, so
+	 * that a Strategy that is no longer played with can be thrown away. The
+	 * Strategy can still be used afterwards and starts new threads if it
+	 * needs them. Must not be called while chooseMove is running in another
+	 * thread.
+	 */
+	void close();
+}
@@ -1,9 +1,10 @@
 import java.applet.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
 import java.net.*;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.concurrent.*;
 import javax.swing.*;
 import javax.swing.border.*;
 
@@ -15,11 +16,15 @@ import javax.swing.border.*;
  * loadGame method to load a save game, saveGame to save a current game,
  * newGame to start a new game, getNoOfPlayers to ask the user for the 
  * number of players that will be played, getSide to ask the user for the
- * side that have chosen in a one player game, checkIsOnEdge to see if the
- * player has clicked an edge of a box, gameOver to load the game over page,
- * paintComponent to draw all the images for the game, computerMove to call
- * the AI, makeMove to update the board when a player has made a move, and
- * playMusic to continue to play the background music. 
+ * side that have chosen in a one player game, getDifficulty to ask the user
+ * how the computer should play, makeStrategy and setComputerStrategy to set
+ * up the computer player, getBoardSize to ask the user
+ * for the size of the board, gameOver to load the game over page,
+ * paintComponent to draw all the images for the game, computerMove to start
+ * the AI on its own thread, makeMove to update the board when a player has
+ * made a move, onBoard to check whether the mouse is over the board,
+ * buttonAt to find the button under the mouse, and playMusic to continue to play the background music. The mouse wheel
+ * zooms the board and dragging with the right button moves it around. 
  * @author Stephanie Giang, Zoe Zou, and Sherilyn Hua
  * @version June 11, 2015
  */
@@ -28,20 +33,54 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 	private static final long serialVersionUID = 1L;
 
 	// Constants that can only be accessed within the class
-	private final int POINT_SPACING = 75;
-	private final int NO_OF_ROWS = 8;
-	private final int NO_OF_COLUMNS = 8;
+	private final int PLAY_AREA = 600;
 
 	// Static constants that can only be accessed within the class
-	private final static int LEFT_SPACING = 17;
-	private final static int TOP_SPACING = 44;
+	private final static int MAX_BOARD_SIZE = 100;
+	// The size of the large buttons
+	private final static int BUTTON_WIDTH = 231;
+	private final static int BUTTON_HEIGHT = 66;
+	// The number of each button, which is also its bit in hoverState, in
+	// the order it lists them
+	private final static int BUTTON_SETTING = 0;
+	private final static int BUTTON_QUIT = 1;
+	private final static int BUTTON_LOAD_GAME = 2;
+	private final static int BUTTON_NEW_GAME = 3;
+	private final static int BUTTON_HELP_MAIN = 4;
+	private final static int BUTTON_RESTART = 5;
+	private final static int BUTTON_HELP = 6;
+	private final static int BUTTON_MAIN_MENU = 7;
+	private final static int BUTTON_SAVE_GAME = 8;
+	private final static int BUTTON_BACK_GAME = 9;
+	private final static int BUTTON_BACK_MAIN = 10;
+	private final static int BUTTON_NEXT = 11;
+	private final static int BUTTON_BACK = 12;
+	private final static int BUTTON_MUSIC = 13;
+	private final static int BUTTON_QUIT_SETTING = 14;
+	private final static int BUTTON_HIGH_SCORES = 15;
+	// The screens with buttons on them, each with a map of its buttons
+	private final static int SCREEN_SETTINGS = 0;
+	private final static int SCREEN_HIGH_SCORES = 1;
+	private final static int SCREEN_MAIN_MENU = 2;
+	private final static int SCREEN_GAME = 3;
+	private final static int SCREEN_FIRST_PAGE_GAME = 4;
+	private final static int SCREEN_FIRST_PAGE_MAIN = 5;
+	private final static int SCREEN_PAGE = 6;
+	private final static int SCREEN_LAST_PAGE_GAME = 7;
+	private final static int SCREEN_LAST_PAGE_MAIN = 8;
+	private final static int SCREENS = 9;
+
+	// How the computer can choose its moves
+	private final static int EASY = 0;
+	private final static int HARD = 1;
+	private final static int MONTE_CARLO = 2;
 
 	// Constants that can be accessed from both within the class and
 	// elsewhere
 	public final int SUPERHERO = 1;
 	public final int VILLAINS = -1;
-	public final Dimension BOARD_SIZE = new Dimension(NO_OF_COLUMNS
-			* POINT_SPACING + 400, NO_OF_ROWS * POINT_SPACING + 100);
+	public final Dimension BOARD_SIZE = new Dimension(PLAY_AREA + 400,
+			PLAY_AREA + 100);
 
 	// Variables that can only be accessed within the class
 	private boolean mouseOverLoadGame;
@@ -63,10 +102,23 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 	private boolean mouseOverNext;
 	private boolean mouseOverBack;
 	private boolean showHighScores;
+	// Thinks during the player's turn in a one player game
+	private PonderingStrategy ponderer;
+	// Chooses the computer's moves away from the event dispatch thread, and
+	// the computer's turn that is being worked out
+	private final ExecutorService computerThread;
+	private Future<MoveList> computerTurn;
+	// Every image of the game, loaded once
+	private final ImageCache images;
+	// The buttons of each screen
+	private final HitMap[] screens;
 	private boolean viewHighScores;
+	// Where the board was last dragged to while it is being moved
+	private boolean dragging;
+	private int dragX;
+	private int dragY;
 	private boolean inGame;
 	private int pageNo;
-	private int numFilled;
 	private int currentPlayer;
 	private int noOfPlayers;
 	private int side;
@@ -80,9 +132,6 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 	boolean showMainMenu;
 	boolean restart;
 
-	// The ArrayList of possible sides
-	ArrayList<String> possibleSides;
-
 	// The high score information
 	Statistics myStats;
 
@@ -121,9 +170,20 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 		loadGame = false;
 		superhero = new Player(0, 1);
 		villain = new Player(0, -1);
+		images = new ImageCache("images");
+		screens = makeScreens(BOARD_SIZE.width, BOARD_SIZE.height);
 
 		computer = 0;
 		firstMove = false;
+		computerThread = Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			public Thread newThread(Runnable task)
+			{
+				Thread thread = new Thread(task, "Computer player");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 
 		// Sets up the board area
 		setPreferredSize(BOARD_SIZE);
@@ -131,7 +191,9 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 		// Add mouse listeners to the game board
 		this.addMouseListener(this);
 		// Add mouse listeners to the drawing panel
-		this.addMouseMotionListener(new MouseMotionHandler());
+		MouseMotionHandler motionHandler = new MouseMotionHandler();
+		this.addMouseMotionListener(motionHandler);
+		this.addMouseWheelListener(motionHandler);
 		setFocusable(true);
 		requestFocusInWindow();
 		myStats = Statistics.readFromFile("playerData.dat");
@@ -146,15 +208,34 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 	 */
 	public void loadGame()
 	{
+		// Reads the saved game from a file, staying on the main menu if it
+		// cannot be read or has no player whose turn it is
+		Grid saved;
+		try
+		{
+			saved = Grid.readFromFile("gameBoard.dat");
+		}
+		catch (IOException exp)
+		{
+			saved = null;
+		}
+		if (saved == null || saved.currentPlayer() == 0)
+		{
+			JOptionPane.showMessageDialog(this,
+					"The saved game could not be loaded");
+			inGame = false;
+			showMainMenu = true;
+			pageNo = 0;
+			repaint();
+			return;
+		}
+		cancelComputerMove();
 		loadGame = true;
+		board = saved;
 
-		// Reads the saved game from a file
-		board = Grid.readFromFile("gameBoard.dat");
-
-		// Calculates the score of each side and adds them back onto the game
+		// Adds the score of each side back onto the game
 		superhero.addScore(board.calculateScore(1));
 		villain.addScore(board.calculateScore(-1));
-		numFilled = superhero.getScore() + villain.getScore();
 		currentPlayer = board.currentPlayer();
 		computer = board.computerPlayer();
 		if (computer != 0)
@@ -169,6 +250,9 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 			noOfPlayers = 2;
 		newGame();
 		loadGame = false;
+		// A game saved while the computer was thinking goes on with its turn
+		if (noOfPlayers == 1 && currentPlayer == computer)
+			computerMove();
 	}
 
 	/**
@@ -177,15 +261,17 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 	 */
 	public void newGame()
 	{
+		cancelComputerMove();
 		inGame = true;
 		isNewGame = true;
 
 		// If the player chooses to start a new game
 		if (loadGame == false)
 		{
-			// Initializes a new board
+			// Initializes a new board and stops the last computer thinking
 			board = new Grid();
-			numFilled = 0;
+			if (ponderer != null)
+				ponderer.stop();
 			restart = false;
 			mouseOverRestart = false;
 			mouseOverHelp = false;
@@ -198,6 +284,7 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 			// Resets the score
 			superhero.resetScore();
 			villain.resetScore();
+			int difficulty = EASY;
 
 			// Gets the number of players by prompting the player
 			noOfPlayers = getNoOfPlayers();
@@ -218,8 +305,25 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 						computer = 1;
 						currentPlayer = -1;
 					}
+					// Determines how the computer chooses its moves, unless
+					// the player went back to the main menu
+					if (!showMainMenu)
+						difficulty = getDifficulty();
 				}
 			}
+			// Gets the size of the board
+			if (!showMainMenu)
+			{
+				Dimension size = getBoardSize();
+				board = new Grid(size.height, size.width);
+				board.updateGrid(currentPlayer, noOfPlayers == 1 ? computer : 0);
+				board.setDifficulty(difficulty);
+				setComputerStrategy();
+
+				// The player moves first, so think while they do
+				if (ponderer != null)
+					ponderer.ponder(board, computer);
+			}
 			repaint();
 		}
 		// If the player chooses to load a previously saved game
@@ -232,6 +336,12 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 			restart = false;
 			pageNo = 2;
 
+			// The computer plays the way it did when the game was saved, and
+			// thinks while it is the player's turn
+			setComputerStrategy();
+			if (ponderer != null && currentPlayer != computer)
+				ponderer.ponder(board, computer);
+
 			// Displays reminder of the type of game accordingly
 			if (noOfPlayers == 1)
 				JOptionPane.showMessageDialog(this,
@@ -348,46 +458,157 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 	}
 
 	/**
-	 * Checks to see if the user has clicked on side of a box
-	 * @param x the x value of the mouse
-	 * @param y the y value of the mouse
-	 * @return 1 if the top side of the box was clicked 2 if the bottom side of
-	 *         the box was clicked 3 if the left side of the box was clicked 4
-	 *         if the right side of the box was clicked -1 if no box was clicked
-	 * 
+	 * Gets how the computer should choose its moves in a one player game.
+	 * The easy computer uses simple rules, the hard computer searches ahead
+	 * and the Monte Carlo computer plays out random games, each for up to
+	 * half a second a move using every core. All three play their first
+	 * moves from the OpeningBook for the size of the board if there is one,
+	 * which there is for the 3 by 3 and the usual 8 by 8 board.
+	 * @return EASY, HARD or MONTE_CARLO
 	 */
-	public int checkIsOnEdge(int x, int y)
+	public int getDifficulty()
 	{
-		if (x >= 10 && y >= 40 && x <= 635 && y <= 660)
+		int difficulty = EASY;
+		// Create a panel with radio buttons
+		JPanel panel = new JPanel();
+		Border lowerEtched = BorderFactory
+				.createEtchedBorder(EtchedBorder.RAISED);
+
+		panel.setBorder(BorderFactory.createTitledBorder(lowerEtched,
+				"Choose how the computer plays"));
+		panel.setLayout(new GridLayout(3, 1));
+
+		// Create a group of radio buttons to add to the Panel
+		ButtonGroup strategyGroup = new ButtonGroup();
+		JRadioButton[] buttonList = new JRadioButton[3];
+
+		// Create and add each radio button to the panel
+		buttonList[0] = new JRadioButton("Easy", true);
+		buttonList[1] = new JRadioButton("Hard");
+		buttonList[2] = new JRadioButton("Monte Carlo");
+		for (int index = 0; index < buttonList.length; index++)
 		{
-			if (x < 610 && y < 640)
-			{
-				if ((x - 10) % POINT_SPACING >= 0
-						&& (x - 10) % POINT_SPACING <= 20
-						&& (y - TOP_SPACING) % POINT_SPACING >= 10
-						&& (y - TOP_SPACING) % POINT_SPACING <= 75)
-					return 3;
-				if ((x - LEFT_SPACING) % POINT_SPACING >= 10
-						&& (x - LEFT_SPACING) % POINT_SPACING <= 75
-						&& (y - 40) % POINT_SPACING >= 0
-						&& (y - 40) % POINT_SPACING <= 20)
-					return 1;
-			}
-			else if ((x >= 610 || y >= 640))
+			strategyGroup.add(buttonList[index]);
+			panel.add(buttonList[index]);
+		}
+
+		// Show a dialog with the panel attached
+		int choice = JOptionPane.showConfirmDialog(this, panel,
+				"Computer Options", JOptionPane.OK_CANCEL_OPTION,
+				JOptionPane.DEFAULT_OPTION);
+
+		// Use the chosen search if OK is selected
+		if (choice == JOptionPane.OK_OPTION)
+		{
+			if (buttonList[1].isSelected())
+				difficulty = HARD;
+			else if (buttonList[2].isSelected())
+				difficulty = MONTE_CARLO;
+		}
+		// Otherwise returns to main menu
+		else
+		{
+			inGame = false;
+			showMainMenu = true;
+			pageNo = 0;
+			repaint();
+		}
+		return difficulty;
+	}
+
+	/**
+	 * Makes the Strategy the computer uses to choose its moves. Every
+	 * difficulty plays from the opening book first, and the easy computer
+	 * then goes on with the simple rules.
+	 * @param difficulty EASY, HARD or MONTE_CARLO
+	 * @return the Strategy of the computer
+	 */
+	public Strategy makeStrategy(int difficulty)
+	{
+		int cores = Runtime.getRuntime().availableProcessors();
+		if (difficulty == HARD)
+			return new BookStrategy(new SearchStrategy(
+					SearchStrategy.DEFAULT_TIME_LIMIT, 0,
+					TranspositionTable.DEFAULT_MEMORY, cores));
+		if (difficulty == MONTE_CARLO)
+			return new BookStrategy(new MctsStrategy(
+					MctsStrategy.DEFAULT_TIME_LIMIT,
+					MctsStrategy.DEFAULT_TREE_SIZE, cores));
+		return new BookStrategy(null);
+	}
+
+	/**
+	 * Gives the computer player of a one player game the Strategy for the
+	 * difficulty kept with the board. The other player, and both players of
+	 * a two player game, use no Strategy. A computer that searches also
+	 * thinks during the player's turn. The Strategy of the last game is
+	 * closed first so its threads and table can be let go.
+	 */
+	private void setComputerStrategy()
+	{
+		if (superhero.getStrategy() != null)
+			superhero.getStrategy().close();
+		if (villain.getStrategy() != null)
+			villain.getStrategy().close();
+		superhero.setStrategy(null);
+		villain.setStrategy(null);
+		ponderer = null;
+		if (noOfPlayers == 1)
+		{
+			Strategy strategy = makeStrategy(board.difficulty());
+			if (board.difficulty() != EASY)
 			{
-				if ((x - 10) % POINT_SPACING >= 0
-						&& (x - 10) % POINT_SPACING <= 20
-						&& (y - TOP_SPACING) % POINT_SPACING >= 10
-						&& (y - TOP_SPACING) % POINT_SPACING <= 75)
-					return 4;
-				if ((x - LEFT_SPACING) % POINT_SPACING >= 10
-						&& (x - LEFT_SPACING) % POINT_SPACING <= 75
-						&& (y - 40) % POINT_SPACING >= 0
-						&& (y - 40) % POINT_SPACING <= 20)
-					return 2;
+				ponderer = new PonderingStrategy(strategy);
+				strategy = ponderer;
 			}
+			if (computer == SUPERHERO)
+				superhero.setStrategy(strategy);
+			else
+				villain.setStrategy(strategy);
 		}
-		return -1;
+	}
+
+	/**
+	 * Gets the number of rows and columns that the user wants the board to
+	 * have
+	 * @return the size of the board with the number of columns as the width
+	 *         and the number of rows as the height
+	 */
+	public Dimension getBoardSize()
+	{
+		// Create a panel with spinners
+		JPanel panel = new JPanel();
+		Border lowerEtched = BorderFactory
+				.createEtchedBorder(EtchedBorder.RAISED);
+
+		panel.setBorder(BorderFactory.createTitledBorder(lowerEtched,
+				"Choose the size of the board"));
+		panel.setLayout(new GridLayout(2, 2));
+
+		// Create and add the spinners to the panel
+		JSpinner rows = new JSpinner(new SpinnerNumberModel(8, Grid.MIN_SIZE,
+				MAX_BOARD_SIZE, 1));
+		JSpinner cols = new JSpinner(new SpinnerNumberModel(8, Grid.MIN_SIZE,
+				MAX_BOARD_SIZE, 1));
+		panel.add(new JLabel("Rows"));
+		panel.add(rows);
+		panel.add(new JLabel("Columns"));
+		panel.add(cols);
+
+		// Show a dialog with the panel attached
+		int choice = JOptionPane.showConfirmDialog(this, panel, "Board Options",
+				JOptionPane.OK_CANCEL_OPTION, JOptionPane.DEFAULT_OPTION);
+
+		// Use the size if OK is selected
+		if (choice == JOptionPane.OK_OPTION)
+			return new Dimension((Integer) cols.getValue(),
+					(Integer) rows.getValue());
+		// Otherwise returns to main menu
+		inGame = false;
+		showMainMenu = true;
+		pageNo = 0;
+		repaint();
+		return new Dimension(8, 8);
 	}
 
 	/**
@@ -520,67 +741,42 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 		if (showMainMenu)
 		{
 			// Sets up background image
-			g.drawImage(new ImageIcon("images/main.jpg").getImage(), 0, 0, this);
+			g.drawImage(images.get("main.jpg"), 0, 0, this);
 			// Sets up the setting button
 			if (mouseOverSetting)
-				g.drawImage(new ImageIcon("images/setting2.png").getImage(),
-						920, 20,
-						this);
+				g.drawImage(images.get("setting2.png"), 920, 20, this);
 			// Sets up the quit button
 			else if (mouseOverQuit)
-				g.drawImage(new ImageIcon("images/quit2.png").getImage(), 860,
-						20,
-						this);
+				g.drawImage(images.get("quit2.png"), 860, 20, this);
 			// Sets up Load Game button
 			else if (mouseOverLoadGame)// If mouse over the button
-				g.drawImage(new ImageIcon("images/loadgame2.jpg").getImage(),
-						385,
-						320, this);
+				g.drawImage(images.get("loadgame2.jpg"), 385, 320, this);
 			// Sets up New Game button
 			else if (mouseOverNewGame)// if mouse over the button
-				g.drawImage(new ImageIcon("images/newgame2.jpg").getImage(),
-						385, 415,
-						this);
+				g.drawImage(images.get("newgame2.jpg"), 385, 415, this);
 			// Sets up ranking button
 			else if (mouseOverHelpMain)// If mouse over the button
-				g.drawImage(
-						new ImageIcon("images/instructions2.jpg").getImage(),
-						385,
-						510, this);
+				g.drawImage(images.get("instructions2.jpg"), 385, 510, this);
 		}
 		else if (pageNo == 2)
 		{
 			// Sets up background image
-			g.drawImage(new ImageIcon("images/gamebg.jpg").getImage(), 0, 0,
-					this);
+			g.drawImage(images.get("gamebg.jpg"), 0, 0, this);
 			// Sets up the setting button
 			if (mouseOverSetting)
-				g.drawImage(new ImageIcon("images/setting2.png").getImage(),
-						920, 20,
-						this);
+				g.drawImage(images.get("setting2.png"), 920, 20, this);
 			// Sets up the quit button
 			else if (mouseOverQuit)
-				g.drawImage(new ImageIcon("images/quit2.png").getImage(), 860,
-						20,
-						this);
+				g.drawImage(images.get("quit2.png"), 860, 20, this);
 			// Sets up Load Game button
 			else if (mouseOverRestart)// If mouse over the button
-				g.drawImage(new ImageIcon("images/restart2.jpg").getImage(),
-						660, 300,
-						this);
+				g.drawImage(images.get("restart2.jpg"), 660, 300, this);
 			else if (mouseOverHelp)// If mouse over the button
-				g.drawImage(
-						new ImageIcon("images/instructions2.jpg").getImage(),
-						660,
-						395, this);
+				g.drawImage(images.get("instructions2.jpg"), 660, 395, this);
 			else if (mouseOverMainMenu)// If mouse over the button
-				g.drawImage(new ImageIcon("images/mainmenu2.jpg").getImage(),
-						660,
-						490, this);
+				g.drawImage(images.get("mainmenu2.jpg"), 660, 490, this);
 			else if (mouseOverSaveGame)// If mouse over the button
-				g.drawImage(new ImageIcon("images/savegame2.jpg").getImage(),
-						660,
-						585, this);
+				g.drawImage(images.get("savegame2.jpg"), 660, 585, this);
 			board.draw(g);
 			// Highlight the line that the computer has drawn
 			if (noOfPlayers == 1 && firstMove == true)
@@ -593,13 +789,9 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 
 			// Draw the arrows next to the current player
 			if (currentPlayer == 1)
-				g.drawImage(new ImageIcon("images/arrow.png").getImage(), 910,
-						95,
-						this);
+				g.drawImage(images.get("arrow.png"), 910, 95, this);
 			else
-				g.drawImage(new ImageIcon("images/arrow.png").getImage(), 910,
-						195,
-						this);
+				g.drawImage(images.get("arrow.png"), 910, 195, this);
 
 			// Draw the scores of each player
 			g.setFont(new Font("font", Font.BOLD, 50));
@@ -612,27 +804,19 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 			if (inGame)
 			{
 				// Draw background image and button
-				g.drawImage(new ImageIcon("images/instructions1game.png")
-						.getImage(), 0, 0, this);
+				g.drawImage(images.get("instructions1game.png"), 0, 0, this);
 				if (mouseOverBackGame)
-					g.drawImage(
-							new ImageIcon("images/backtogame2.png").getImage(),
-							10, 623, this);
+					g.drawImage(images.get("backtogame2.png"), 10, 623, this);
 			}
 			else
 			{
 				// Draw background image and button
-				g.drawImage(
-						new ImageIcon("images/instructions1.png").getImage(),
-						0, 0, this);
+				g.drawImage(images.get("instructions1.png"), 0, 0, this);
 				if (mouseOverBackMain)
-					g.drawImage(
-							new ImageIcon("images/backtomain2.png").getImage(),
-							10, 623, this);
+					g.drawImage(images.get("backtomain2.png"), 10, 623, this);
 			}
 			if (mouseOverNext)
-				g.drawImage(new ImageIcon("images/next2.png").getImage(), 760,
-						623, this);
+				g.drawImage(images.get("next2.png"), 760, 623, this);
 		}
 		// Draws the other pages of the instructions that are in between the
 		// beginning and the end
@@ -640,24 +824,16 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 		{
 			// Draw the background
 			if (pageNo == 4)
-				g.drawImage(
-						new ImageIcon("images/instructions2.png").getImage(),
-						0, 0, this);
+				g.drawImage(images.get("instructions2.png"), 0, 0, this);
 			else if (pageNo == 5)
-				g.drawImage(
-						new ImageIcon("images/instructions3.png").getImage(),
-						0, 0, this);
+				g.drawImage(images.get("instructions3.png"), 0, 0, this);
 			else
-				g.drawImage(
-						new ImageIcon("images/instructions4.png").getImage(),
-						0, 0, this);
+				g.drawImage(images.get("instructions4.png"), 0, 0, this);
 			// Draw the buttons
 			if (mouseOverNext)
-				g.drawImage(new ImageIcon("images/next2.png").getImage(), 760,
-						623, this);
+				g.drawImage(images.get("next2.png"), 760, 623, this);
 			else if (mouseOverBack)
-				g.drawImage(new ImageIcon("images/back2.png").getImage(), 10,
-						623, this);
+				g.drawImage(images.get("back2.png"), 10, 623, this);
 		}
 		// Draws last page of the instructions
 		else if (pageNo == 7)
@@ -665,59 +841,39 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 			if (inGame)
 			{
 				// Draw background image and button
-				g.drawImage(new ImageIcon("images/instructions5game.png")
-						.getImage(), 0, 0, this);
+				g.drawImage(images.get("instructions5game.png"), 0, 0, this);
 				if (mouseOverBackGame)
-					g.drawImage(
-							new ImageIcon("images/backtogame2.png").getImage(),
-							760, 623, this);
+					g.drawImage(images.get("backtogame2.png"), 760, 623, this);
 			}
 			else
 			// Draw background image and button
 			{
-				g.drawImage(
-						new ImageIcon("images/instructions5.png").getImage(),
-						0, 0, this);
+				g.drawImage(images.get("instructions5.png"), 0, 0, this);
 				if (mouseOverBackMain)
-					g.drawImage(
-							new ImageIcon("images/backtomain2.png").getImage(),
-							760, 623, this);
+					g.drawImage(images.get("backtomain2.png"), 760, 623, this);
 			}
 			if (mouseOverBack)
-				g.drawImage(new ImageIcon("images/back2.png").getImage(), 10,
-						623, this);
+				g.drawImage(images.get("back2.png"), 10, 623, this);
 		}
 		if (showSetting)
 		{
 			// Draw background
-			g.drawImage(new ImageIcon("images/settingsbg.png").getImage(), 100,
-					100,
-					this);
+			g.drawImage(images.get("settingsbg.png"), 100, 100, this);
 			// Draw the music setting
 			if (mouseOverMusic)
-				g.drawImage(new ImageIcon("images/musicON.png").getImage(),
-						322, 178,
-						this);
+				g.drawImage(images.get("musicON.png"), 322, 178, this);
 			else if (musicOff)
-				g.drawImage(new ImageIcon("images/musicOFF.png").getImage(),
-						322, 178,
-						this);
+				g.drawImage(images.get("musicOFF.png"), 322, 178, this);
 			// Draw other buttons
 			if (mouseOverQuitSetting)
-				g.drawImage(new ImageIcon("images/exit2.png").getImage(), 819,
-						128, this);
+				g.drawImage(images.get("exit2.png"), 819, 128, this);
 			else if (viewHighScores)
-				g.drawImage(
-						new ImageIcon("images/viewhighscore.png").getImage(),
-						138,
-						294, this);
+				g.drawImage(images.get("viewhighscore.png"), 138, 294, this);
 		}
 		else if (showHighScores)
 		{
 			// Draw background
-			g.drawImage(new ImageIcon("images/highscoresbg.png").getImage(),
-					100, 100,
-					this);
+			g.drawImage(images.get("highscoresbg.png"), 100, 100, this);
 			// Draw the high scores
 			g.setFont(new Font("font", Font.BOLD, 30));
 			g.drawString("Name                  Score                   Date",
@@ -729,8 +885,7 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 			}
 			// Draw the
 			if (mouseOverQuitSetting)
-				g.drawImage(new ImageIcon("images/exit2.png").getImage(), 819,
-						128, this);
+				g.drawImage(images.get("exit2.png"), 819, 128, this);
 		}
 
 	}
@@ -773,241 +928,312 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 		int x, y;
 		x = event.getX();
 		y = event.getY();
-		// If settings was clicked
-		if (showSetting)
+		// Pressing the right button on the board starts moving it
+		dragging = SwingUtilities.isRightMouseButton(event) && onBoard(x, y);
+		if (dragging)
+		{
+			dragX = x;
+			dragY = y;
+			return;
+		}
+		switch (buttonAt(x, y))
 		{
-			// To turn the music on or off
-			if (x >= 332 && x <= 521 && y >= 178 && y <= 272)
+		// To turn the music on or off
+		case BUTTON_MUSIC:
+			if (musicOff)
 			{
-				if (musicOff)
-				{
-					musicOff = false;
-					playMusic();
-				}
-				else
-				{
-					musicOff = true;
-					backgroundMusic.stop();
-				}
+				musicOff = false;
+				playMusic();
 			}
-			// To exit the settings page
-			else if (x >= 819 && x <= 869 && y >= 128 && y <= 178)
-				showSetting = false;
-			// To access the high scores page
-			else if (x >= 138 && x <= 494 && y >= 294 && y <= 344)
+			else
 			{
-				showHighScores = true;
-				showSetting = false;
+				musicOff = true;
+				backgroundMusic.stop();
 			}
-			repaint();
-			return;
-		}
-		// If high scores was clicked
-		if (showHighScores)
-		{
-			// To exit high scores
-			if (x >= 819 && x <= 869 && y >= 128 && y <= 178)
+			break;
+		// To exit the settings or high scores page
+		case BUTTON_QUIT_SETTING:
+			showSetting = showHighScores;
+			showHighScores = false;
+			break;
+		// To access the high scores page
+		case BUTTON_HIGH_SCORES:
+			showHighScores = true;
+			showSetting = false;
+			break;
+		// If the power off button was clicked
+		case BUTTON_QUIT:
+			if (JOptionPane.showConfirmDialog(SuperVillainsBoard.this,
+					"Do you want to Save the Game?", "Quit the Game",
+					JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION)
+				saveGame();
+			System.exit(0);
+			break;
+		// If the settings button was clicked
+		case BUTTON_SETTING:
+			showSetting = true;
+			break;
+		// If load game was clicked
+		case BUTTON_LOAD_GAME:
+			showMainMenu = false;
+			loadGame();
+			break;
+		// If new games was clicked
+		case BUTTON_NEW_GAME:
+			showMainMenu = false;
+			newGame();
+			break;
+		// If instructions was clicked on the main menu
+		case BUTTON_HELP_MAIN:
+			showMainMenu = false;
+			pageNo = 3;
+			break;
+		// If restart was clicked
+		case BUTTON_RESTART:
+			if (JOptionPane.showConfirmDialog(SuperVillainsBoard.this,
+					"Are you sure you want to restart?", "Warning",
+					JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION)
 			{
-				showSetting = true;
-				showHighScores = false;
+				restart = true;
+				repaint();
+				newGame();
 			}
+			break;
+		// If instructions was clicked in the game
+		case BUTTON_HELP:
+			pageNo = 3;
+			break;
+		// If main menu was clicked
+		case BUTTON_MAIN_MENU:
+			showMainMenu = true;
+			break;
+		// If save game was clicked
+		case BUTTON_SAVE_GAME:
+			if (JOptionPane.showConfirmDialog(SuperVillainsBoard.this,
+					"Do you want to Save the Game?", "Quit the Game",
+					JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION)
+				saveGame();
+			break;
+		// Back to the game from the instructions
+		case BUTTON_BACK_GAME:
+			pageNo = 2;
+			showMainMenu = false;
+			break;
+		// Back to the main menu from the instructions
+		case BUTTON_BACK_MAIN:
+			showMainMenu = true;
+			pageNo = 0;
+			break;
+		// Goes forward 1 page if next is clicked
+		case BUTTON_NEXT:
+			pageNo++;
+			break;
+		// Goes back 1 page if back is clicked
+		case BUTTON_BACK:
+			pageNo--;
+			break;
+		// If the player has made a move during their turn
+		default:
+			if (onBoard(x, y) && (currentPlayer == side || noOfPlayers == 2))
+				makeMove(x, y);
 		}
-		if (showMainMenu || pageNo == 2)
+		// if grid is full, game over
+		repaint();
+	}
+
+	/**
+	 * Starts the computer player's turn. The moves are chosen on a copy of
+	 * the board by the computer thread so the window keeps responding while
+	 * the computer thinks. Every move of the turn, including each box filled
+	 * on the way, is handed back to the event dispatch thread together.
+	 */
+	public void computerMove()
+	{
+		if (computerTurn != null)
+			return;
+		isNewGame = false;
+		firstMove = true;
+		final Player player = computer == SUPERHERO ? superhero : villain;
+		final Grid copy = new Grid(board);
+		final int mover = computer;
+		Callable<MoveList> moves = new Callable<MoveList>()
 		{
-			if (y >= 20 && y <= 60)
+			public MoveList call()
 			{
-				// If the power off button was clicked
-				if (x >= 860 && x <= 900)
-				{
-					if (JOptionPane.showConfirmDialog(SuperVillainsBoard.this,
-							"Do you want to Save the Game?", "Quit the Game",
-							JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION)
-						saveGame();
-					System.exit(0);
-				}
-				// If the settings button was clicked
-				else if (x >= 920 && x <= 960)
-					showSetting = true;
+				return chooseMoves(player, copy, mover);
 			}
-			if (showMainMenu)
+		};
+		FutureTask<MoveList> task = new FutureTask<MoveList>(moves)
+		{
+			protected void done()
 			{
-				if (x >= 385 && x <= 615)
+				if (isCancelled())
+					return;
+				final Future<MoveList> turn = this;
+				SwingUtilities.invokeLater(new Runnable()
 				{
-					// If load game was clicked
-					if (y >= 320 && y <= 385)
-					{
-						showMainMenu = false;
-						loadGame();
-					}
-					// If new games was clicked
-					else if (y >= 415 && y <= 480)
-					{
-						showMainMenu = false;
-						newGame();
-					}
-					// If instructions was clicked
-					else if (y >= 510 && y <= 575)
+					public void run()
 					{
-						showMainMenu = false;
-						pageNo = 3;
+						applyComputerMoves(turn);
 					}
-				}
-			}
-			// If in game
-			else
-			{
-				if (x >= 660 && x <= 890)
-				{
-					if (y >= 300 && y <= 365)
-					{
-						// If restart was clicked
-						if (JOptionPane.showConfirmDialog(
-								SuperVillainsBoard.this,
-								"Are you sure you want to restart?", "Warning",
-								JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION)
-						{
-							restart = true;
-							repaint();
-							newGame();
-						}
-					}
-					// If instructions was clicked
-					else if (y >= 395 && y <= 460)
-						pageNo = 3;
-					// If main menu was clicked
-					else if (y >= 490 && y <= 555)
-						showMainMenu = true;
-					// If save game was clicked
-					else if (y >= 585 && y <= 650)
-					{
-						if (JOptionPane.showConfirmDialog(
-								SuperVillainsBoard.this,
-								"Do you want to Save the Game?",
-								"Quit the Game",
-								JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION)
-							saveGame();
-					}
-				}
-				// If the player has made a move during their turn
-				if (currentPlayer == side || noOfPlayers == 2)
-				{
-					makeMove(x, y);
-				}
+				});
 			}
+		};
+		computerTurn = task;
+		computerThread.execute(task);
+	}
+
+	/**
+	 * Chooses every move of the computer's turn on a copy of the board. The
+	 * computer moves again after each move that fills a box, so the whole
+	 * chain of boxes is taken in one loop.
+	 * @param player the computer player
+	 * @param grid the copy of the board, which is changed
+	 * @param mover the side of the computer player
+	 * @return the edges taken, in order
+	 */
+	private static MoveList chooseMoves(Player player, Grid grid, int mover)
+	{
+		BitBoard state = grid.getState();
+		MoveList edges = new MoveList(state.edgeCount());
+		while (!grid.isGameOver() && !Thread.currentThread().isInterrupted())
+		{
+			int move = player.makeMove(grid);
+			if (move == Move.NONE)
+				break;
+			int sideChosen = grid.play(move, mover);
+			if (sideChosen < 0)
+				break;
+			edges.add(state.edgeOf(move));
+			// Otherwise the turn passes to the other player
+			if (sideChosen == 0)
+				break;
 		}
-		// First page of instructions
-		else if (pageNo == 3)
+		return edges;
+	}
+
+	/**
+	 * Updates the board with the moves of the computer's turn, adds the
+	 * boxes filled to its score and checks to see whether the game is over.
+	 * Runs on the event dispatch thread once the moves have been chosen.
+	 * @param turn the turn that was worked out, which is ignored if the
+	 * 			game was restarted since
+	 */
+	private void applyComputerMoves(Future<MoveList> turn)
+	{
+		if (turn != computerTurn)
+			return;
+		computerTurn = null;
+		MoveList edges;
+		try
 		{
-			// If back was clicked
-			if (inGame)
-			{
-				if (x >= 10 && x <= 240 && y >= 623 && y <= 688)
-					pageNo = 2;
-				showMainMenu = false;
-			}
-			else
-			{
-				if (x >= 10 && x <= 240 && y >= 623 && y <= 688)
-				{
-					showMainMenu = true;
-					pageNo = 0;
-				}
-			}
-			// If next was clicked
-			if (x >= 760 && x <= 990 && y >= 623 && y <= 688)
-				pageNo++;
+			edges = turn.get();
 		}
-		// Rest of the instructions page
-		else if (pageNo >= 4 && pageNo <= 6)
+		catch (InterruptedException exp)
 		{
-			// Goes back 1 page if back is clicked
-			if (x >= 10 && x <= 240 && y >= 623 && y <= 688)
-				pageNo--;
-			// Goes forward 1 page if next is clicked
-			else if (x >= 760 && x <= 990 && y >= 623 && y <= 688)
-				pageNo++;
+			Thread.currentThread().interrupt();
+			return;
 		}
-		// The last page of instructions
-		else if (pageNo == 7)
+		catch (ExecutionException exp)
 		{
-			// If next was clicked
-			if (inGame)
-			{
-				if (x >= 760 && x <= 990 && y >= 623 && y <= 688)
-				{
-					pageNo = 2;
-				}
-			}
-			else
-			{
-				if (x >= 760 && x <= 990 && y >= 623 && y <= 688)
-				{
-					showMainMenu = true;
-					pageNo = 0;
-				}
-			}
-			// If back was clicked
-			if (x >= 10 && x <= 240 && y >= 623 && y <= 688)
-				pageNo--;
+			useSimpleRules();
+			return;
 		}
-		else if (showMainMenu == true && x >= 800 && x <= 950 && y >= 520
-				&& y <= 670)
+
+		Player player = computer == SUPERHERO ? superhero : villain;
+		BitBoard state = board.getState();
+		int sideChosen = -1;
+		for (int index = 0; index < edges.size(); index++)
 		{
-			pageNo = 0;
-			newGame();
+			int move = state.move(edges.get(index));
+			sideChosen = board.play(move, currentPlayer);
+			if (sideChosen < 0)
+				break;
+			// Update last moved and add up the score if a box was filled
+			player.lastMove(move);
+			if (sideChosen >= 1)
+				player.addScore(sideChosen);
+		}
+		// No move was made or an edge was already taken, so the turn would
+		// never pass
+		if (sideChosen < 0 && !board.isGameOver())
+		{
+			useSimpleRules();
+			return;
+		}
+		// The other player's turn, so think while they do
+		if (sideChosen == 0)
+		{
+			currentPlayer *= -1;
+			if (ponderer != null)
+				ponderer.ponder(board, computer);
 		}
-		// if grid is full, game over
 		repaint();
+		// Check to see if game is over
+		if (board.isGameOver())
+			gameOver();
 	}
 
 	/**
-	 * Makes the computer player make a move, updates the board, checks to see whether game is over
-	 * or not. Also adds score to the appropriate player when a box is filled.
+	 * Goes on with the computer's turn using the simple rules after its
+	 * Strategy failed. If the simple rules failed, the turn goes to the
+	 * other player so the game is not stuck.
 	 */
-	public void computerMove()
+	private void useSimpleRules()
 	{
-		isNewGame = false;
-		firstMove = true;
-		int[] moves = new int[3];
-		int sideChosen = 0;
-		// ArrayList<String> sidesCopy = new ArrayList<String> (possibleSides);
-		// Make move according to what the computer is
-		if (computer == SUPERHERO)
-			moves = superhero.makeMove(board, board.possibleMoves());
-		else
-			moves = villain.makeMove(board, board.possibleMoves());
-		// Update the board with the move that the computer has chosen to make
-		sideChosen = board.updateBoxComputer(moves[0], moves[1], moves[2],
-				currentPlayer);
-		// If a box was formed
-		if (sideChosen >= 0)
+		Player player = computer == SUPERHERO ? superhero : villain;
+		if (player.getStrategy() == null)
 		{
-			// Update last moved
-			if (computer == SUPERHERO)
-				superhero.lastMove(moves[0], moves[1], moves[2]);
-			else
-				villain.lastMove(moves[0], moves[1], moves[2]);
-			// If box was clicked
-			if (sideChosen >= 1)
+			currentPlayer *= -1;
+			repaint();
+			return;
+		}
+		JOptionPane.showMessageDialog(this,
+				"The computer ran into a problem and will play the easy way");
+		player.getStrategy().close();
+		player.setStrategy(null);
+		ponderer = null;
+		computerMove();
+	}
+
+	/**
+	 * Stops the computer's turn if it is being worked out, so its moves are
+	 * not made on a new board. Waits for the computer thread to finish and
+	 * then shuts down the threads of the computer's Strategy, which starts
+	 * them again if it plays on.
+	 */
+	private void cancelComputerMove()
+	{
+		if (computerTurn == null)
+			return;
+		computerTurn.cancel(true);
+		Player player = computer == SUPERHERO ? superhero : villain;
+		Strategy strategy = player.getStrategy();
+		if (strategy != null)
+			strategy.stop();
+		computerTurn = null;
+
+		// The computer thread runs one task at a time, so an empty task
+		// finishes once the cancelled turn has stopped
+		try
+		{
+			computerThread.submit(new Runnable()
 			{
-				if (currentPlayer == SUPERHERO)
-					superhero.addScore(sideChosen);
-				else
-					villain.addScore(sideChosen);
-				// Add up the score
-				computerMove(); // Player gets to go again
-			}
-			// Otherwise other player's turn
-			else
-				currentPlayer *= -1;
+				public void run()
+				{
+				}
+			}).get();
 		}
-		numFilled = superhero.getScore() + villain.getScore();
-		// Check to see if game is over
-		if (numFilled == 64)
+		catch (InterruptedException exp)
 		{
-			repaint();
-			gameOver();
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException exp)
+		{
+			throw new IllegalStateException(exp.getCause());
 		}
+		if (strategy != null)
+			strategy.close();
 	}
 
 	/**
@@ -1019,16 +1245,12 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 	 */
 	public void makeMove(int x, int y)
 	{
-		int edge = checkIsOnEdge(x, y);
+		int move = board.clickedMove(x, y);
 		int sideClicked = 0;
-		if (edge >= 1)
+		if (move != Move.NONE)
 		{
 			// Check to see if move is valid and update the board if it is
-			if (noOfPlayers == 2)
-				sideClicked = board.updateBox(x, y, edge, currentPlayer);
-			else
-				sideClicked = board.updateBoxOnePlayer(x, y, edge,
-						currentPlayer);
+			sideClicked = board.play(move, currentPlayer);
 			// If a box was formed
 			if (sideClicked >= 1)
 			{
@@ -1037,10 +1259,12 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 					villain.addScore(sideClicked);
 				if (currentPlayer == SUPERHERO)
 					superhero.addScore(sideClicked);
+				// The player goes again, so think about the new position
+				if (noOfPlayers == 1 && ponderer != null)
+					ponderer.ponder(board, computer);
 			}
 			// Check to see if game is over
-			numFilled = superhero.getScore() + villain.getScore();
-			if (numFilled == 64)
+			if (board.isGameOver())
 			{
 				repaint();
 				gameOver();
@@ -1058,131 +1282,294 @@ public class SuperVillainsBoard extends JPanel implements MouseListener
 
 	public void mouseReleased(MouseEvent event)
 	{
+		dragging = false;
+	}
+
+	/**
+	 * Checks to see whether a point is on the board while a game is shown
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return true if the point is on the board
+	 */
+	private boolean onBoard(int x, int y)
+	{
+		return pageNo == 2 && !showMainMenu && !showSetting
+				&& !showHighScores && board.view().contains(x, y);
 	}
 
+	/**
+	 * Finds the button under a point of the screen that is shown. Used for
+	 * both clicks and highlighting, so a button lights up exactly where it
+	 * can be clicked.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return the button, one of the BUTTON constants, or HitMap.NONE
+	 */
+	private int buttonAt(int x, int y)
+	{
+		int screen = screen();
+		if (screen < 0)
+			return HitMap.NONE;
+		return screens[screen].buttonAt(x, y);
+	}
 
-	private class MouseMotionHandler extends MouseMotionAdapter
+	/**
+	 * Works out which screen is shown, the same way paintComponent does
+	 * @return the screen, one of the SCREEN constants, or -1 for a screen
+	 * 			with no buttons
+	 */
+	private int screen()
 	{
-		public void mouseMoved(MouseEvent event)
+		if (showSetting)
+			return SCREEN_SETTINGS;
+		if (showHighScores)
+			return SCREEN_HIGH_SCORES;
+		if (showMainMenu)
+			return SCREEN_MAIN_MENU;
+		if (pageNo == 2)
+			return SCREEN_GAME;
+		if (pageNo == 3)
+			return inGame ? SCREEN_FIRST_PAGE_GAME : SCREEN_FIRST_PAGE_MAIN;
+		if (pageNo >= 4 && pageNo <= 6)
+			return SCREEN_PAGE;
+		if (pageNo == 7)
+			return inGame ? SCREEN_LAST_PAGE_GAME : SCREEN_LAST_PAGE_MAIN;
+		return -1;
+	}
+
+	/**
+	 * Makes the map of the buttons of every screen
+	 * @param width the width of the window
+	 * @param height the height of the window
+	 * @return the maps, by the SCREEN constants
+	 */
+	private static HitMap[] makeScreens(int width, int height)
+	{
+		HitMap[] screens = new HitMap[SCREENS];
+		for (int screen = 0; screen < SCREENS; screen++)
+			screens[screen] = new HitMap(width, height);
+
+		screens[SCREEN_SETTINGS].add(BUTTON_MUSIC, 332, 178, 521, 272);
+		screens[SCREEN_SETTINGS].add(BUTTON_QUIT_SETTING, 819, 128, 869, 178);
+		screens[SCREEN_SETTINGS].add(BUTTON_HIGH_SCORES, 138, 294, 494, 344);
+		screens[SCREEN_HIGH_SCORES].add(BUTTON_QUIT_SETTING, 819, 128, 869,
+				178);
+
+		// The quit and settings buttons are on the main menu and the game
+		for (int screen = SCREEN_MAIN_MENU; screen <= SCREEN_GAME; screen++)
 		{
-			// get the coordinate of the mouse click
-			int x, y;
-			x = event.getX();
-			y = event.getY();
-			if (showSetting)
-			{
-				mouseOverMusic = false;
-				mouseOverQuitSetting = false;
-				viewHighScores = false;
-				if (x >= 330 && x <= 373 && y >= 140 && y <= 190)
-					mouseOverMusic = true;
-				else if (x >= 820 && x <= 870 && y >= 120 && y <= 170)
-					mouseOverQuitSetting = true;
-				else if (x >= 138 && x <= 494 && y >= 294 && y <= 344)
-					viewHighScores = true;
-				repaint();
+			screens[screen].add(BUTTON_QUIT, 860, 20, 900, 60);
+			screens[screen].add(BUTTON_SETTING, 920, 20, 960, 60);
+		}
+		screens[SCREEN_MAIN_MENU].add(BUTTON_LOAD_GAME, 385, 320, 615, 385);
+		screens[SCREEN_MAIN_MENU].add(BUTTON_NEW_GAME, 385, 415, 615, 480);
+		screens[SCREEN_MAIN_MENU].add(BUTTON_HELP_MAIN, 385, 510, 615, 575);
+		screens[SCREEN_GAME].add(BUTTON_RESTART, 660, 300, 890, 365);
+		screens[SCREEN_GAME].add(BUTTON_HELP, 660, 395, 890, 460);
+		screens[SCREEN_GAME].add(BUTTON_MAIN_MENU, 660, 490, 890, 555);
+		screens[SCREEN_GAME].add(BUTTON_SAVE_GAME, 660, 585, 890, 650);
+
+		// The pages of instructions have a button at the bottom left and
+		// right
+		screens[SCREEN_FIRST_PAGE_GAME].add(BUTTON_BACK_GAME, 10, 623, 240,
+				688);
+		screens[SCREEN_FIRST_PAGE_MAIN].add(BUTTON_BACK_MAIN, 10, 623, 240,
+				688);
+		screens[SCREEN_PAGE].add(BUTTON_BACK, 10, 623, 240, 688);
+		screens[SCREEN_LAST_PAGE_GAME].add(BUTTON_BACK, 10, 623, 240, 688);
+		screens[SCREEN_LAST_PAGE_MAIN].add(BUTTON_BACK, 10, 623, 240, 688);
+		for (int screen = SCREEN_FIRST_PAGE_GAME; screen <= SCREEN_PAGE; screen++)
+			screens[screen].add(BUTTON_NEXT, 760, 623, 990, 688);
+		screens[SCREEN_LAST_PAGE_GAME].add(BUTTON_BACK_GAME, 760, 623, 990,
+				688);
+		screens[SCREEN_LAST_PAGE_MAIN].add(BUTTON_BACK_MAIN, 760, 623, 990,
+				688);
+		return screens;
+	}
+
+
+	/**
+	 * Returns which buttons the mouse is over, one bit for each button
+	 * @return the bits of the buttons, numbered by the BUTTON constants
+	 */
+	private int hoverState()
+	{
+		boolean[] over = { mouseOverSetting, mouseOverQuit, mouseOverLoadGame,
+				mouseOverNewGame, mouseOverHelpMain, mouseOverRestart,
+				mouseOverHelp, mouseOverMainMenu, mouseOverSaveGame,
+				mouseOverBackGame, mouseOverBackMain, mouseOverNext,
+				mouseOverBack, mouseOverMusic, mouseOverQuitSetting,
+				viewHighScores };
+		int state = 0;
+		for (int button = 0; button < over.length; button++)
+			if (over[button])
+				state |= 1 << button;
+		return state;
+	}
+
+	/**
+	 * Sets which buttons the mouse is over
+	 * @param state the bits of the buttons, numbered by the BUTTON constants
+	 */
+	private void setHoverState(int state)
+	{
+		mouseOverSetting = (state & 1 << BUTTON_SETTING) != 0;
+		mouseOverQuit = (state & 1 << BUTTON_QUIT) != 0;
+		mouseOverLoadGame = (state & 1 << BUTTON_LOAD_GAME) != 0;
+		mouseOverNewGame = (state & 1 << BUTTON_NEW_GAME) != 0;
+		mouseOverHelpMain = (state & 1 << BUTTON_HELP_MAIN) != 0;
+		mouseOverRestart = (state & 1 << BUTTON_RESTART) != 0;
+		mouseOverHelp = (state & 1 << BUTTON_HELP) != 0;
+		mouseOverMainMenu = (state & 1 << BUTTON_MAIN_MENU) != 0;
+		mouseOverSaveGame = (state & 1 << BUTTON_SAVE_GAME) != 0;
+		mouseOverBackGame = (state & 1 << BUTTON_BACK_GAME) != 0;
+		mouseOverBackMain = (state & 1 << BUTTON_BACK_MAIN) != 0;
+		mouseOverNext = (state & 1 << BUTTON_NEXT) != 0;
+		mouseOverBack = (state & 1 << BUTTON_BACK) != 0;
+		mouseOverMusic = (state & 1 << BUTTON_MUSIC) != 0;
+		mouseOverQuitSetting = (state & 1 << BUTTON_QUIT_SETTING) != 0;
+		viewHighScores = (state & 1 << BUTTON_HIGH_SCORES) != 0;
+	}
+
+	/**
+	 * Repaints the buttons whose highlight has changed, leaving the rest of
+	 * the window alone
+	 * @param changed the bits of the buttons that changed, from hoverState
+	 */
+	private void repaintButtons(int changed)
+	{
+		for (int button = 0; changed != 0; button++, changed >>>= 1)
+			if ((changed & 1) != 0)
+				repaintButton(button);
+	}
+
+	/**
+	 * Repaints where the highlighted image of a button is drawn by
+	 * paintComponent on the current page
+	 * @param button the button, one of the BUTTON constants
+	 */
+	private void repaintButton(int button)
+	{
+		// The back buttons are on the left of page 3 and the right of page 7
+		int backX = pageNo == 7 ? 760 : 10;
+		switch (button)
+		{
+		case BUTTON_SETTING:
+			repaintImage("setting2.png", 920, 20);
+			break;
+		case BUTTON_QUIT:
+			repaintImage("quit2.png", 860, 20);
+			break;
+		case BUTTON_LOAD_GAME:
+			repaintImage("loadgame2.jpg", 385, 320);
+			break;
+		case BUTTON_NEW_GAME:
+			repaintImage("newgame2.jpg", 385, 415);
+			break;
+		case BUTTON_HELP_MAIN:
+			repaintImage("instructions2.jpg", 385, 510);
+			break;
+		case BUTTON_RESTART:
+			repaintImage("restart2.jpg", 660, 300);
+			break;
+		case BUTTON_HELP:
+			repaintImage("instructions2.jpg", 660, 395);
+			break;
+		case BUTTON_MAIN_MENU:
+			repaintImage("mainmenu2.jpg", 660, 490);
+			break;
+		case BUTTON_SAVE_GAME:
+			repaintImage("savegame2.jpg", 660, 585);
+			break;
+		case BUTTON_BACK_GAME:
+			repaintImage("backtogame2.png", backX, 623);
+			break;
+		case BUTTON_BACK_MAIN:
+			repaintImage("backtomain2.png", backX, 623);
+			break;
+		case BUTTON_NEXT:
+			repaintImage("next2.png", 760, 623);
+			break;
+		case BUTTON_BACK:
+			repaintImage("back2.png", 10, 623);
+			break;
+		case BUTTON_MUSIC:
+			repaintImage("musicON.png", 322, 178);
+			break;
+		case BUTTON_QUIT_SETTING:
+			repaintImage("exit2.png", 819, 128);
+			break;
+		case BUTTON_HIGH_SCORES:
+			repaintImage("viewhighscore.png", 138, 294);
+			break;
+		}
+	}
+
+	/**
+	 * Repaints the area an image covers. An image that is missing is taken
+	 * to be the size of a large button.
+	 * @param name the file name of the image
+	 * @param x the left of the image
+	 * @param y the top of the image
+	 */
+	private void repaintImage(String name, int x, int y)
+	{
+		BufferedImage image = images.get(name);
+		if (image != null)
+			repaint(x, y, image.getWidth(), image.getHeight());
+		else
+			repaint(x, y, BUTTON_WIDTH, BUTTON_HEIGHT);
+	}
+
+	private class MouseMotionHandler extends MouseAdapter
+	{
+		/**
+		 * Moves the board with the mouse while the right button is held
+		 * down on it
+		 * @param event the mouse event
+		 */
+		public void mouseDragged(MouseEvent event)
+		{
+			if (!dragging)
 				return;
-			}
-			if (showHighScores)
-			{
-				mouseOverQuitSetting = false;
-				if (x >= 820 && x <= 870 && y >= 120 && y <= 170)
-					mouseOverQuitSetting = true;
+			if (board.view().pan(event.getX() - dragX, event.getY() - dragY))
+				repaint(board.view().area());
+			dragX = event.getX();
+			dragY = event.getY();
+		}
+
+		/**
+		 * Zooms the board in or out around the mouse
+		 * @param event the mouse wheel event
+		 */
+		public void mouseWheelMoved(MouseWheelEvent event)
+		{
+			if (onBoard(event.getX(), event.getY())
+					&& board.view().zoom(-event.getWheelRotation(),
+							event.getX(), event.getY()))
+				repaint(board.view().area());
+		}
+
+		/**
+		 * Highlights the button under the mouse. Only the buttons that
+		 * change are repainted, so moving the mouse over the board or
+		 * within one button does not repaint anything.
+		 * @param event the mouse event
+		 */
+		public void mouseMoved(MouseEvent event)
+		{
+			int before = hoverState();
+			int pageBefore = pageNo;
+			int button = buttonAt(event.getX(), event.getY());
+			setHoverState(button == HitMap.NONE ? 0 : 1 << button);
+			if (showMainMenu)
+				pageNo = 0;
+			// Going back to the main menu changes the page, so all of it is
+			// drawn again
+			if (pageNo != pageBefore)
 				repaint();
-				return;
-			}
-			if (showMainMenu || pageNo == 2)
-			{
-				mouseOverQuit = false;
-				mouseOverSetting = false;
-				if (y >= 20 && y <= 60)
-				{
-					if (x >= 860 && x <= 900)
-						mouseOverQuit = true;
-					else if (x >= 920 && x <= 960)
-						mouseOverSetting = true;
-				}
-				if (showMainMenu)
-				{
-					pageNo = 0;
-					if (x >= 385 && x <= 615)
-					{
-						mouseOverLoadGame = false;
-						mouseOverNewGame = false;
-						mouseOverHelpMain = false;
-						if (y >= 320 && y <= 385)
-							mouseOverLoadGame = true;
-						else if (y >= 415 && y <= 480)
-							mouseOverNewGame = true;
-						else if (y >= 510 && y <= 575)
-							mouseOverHelpMain = true;
-					}
-				}
-				else
-				{
-					if (x >= 660 && x <= 890)
-					{
-						mouseOverRestart = false;
-						mouseOverHelp = false;
-						mouseOverMainMenu = false;
-						mouseOverSaveGame = false;
-						if (y >= 300 && y <= 365)
-							mouseOverRestart = true;
-						else if (y >= 395 && y <= 460)
-							mouseOverHelp = true;
-						else if (y >= 490 && y <= 555)
-							mouseOverMainMenu = true;
-						else if (y >= 585 && y <= 650)
-							mouseOverSaveGame = true;
-					}
-				}
-			}
-			else if (pageNo == 3)
-			{
-				mouseOverBackGame = false;
-				mouseOverBackMain = false;
-				mouseOverNext = false;
-				if (inGame)
-				{
-					if (x >= 10 && x <= 240 && y >= 623 && y <= 688)
-						mouseOverBackGame = true;
-				}
-				else
-				{
-					if (x >= 10 && x <= 240 && y >= 623 && y <= 688)
-						mouseOverBackMain = true;
-				}
-				if (x >= 760 && x <= 990 && y >= 623 && y <= 688)
-					mouseOverNext = true;
-			}
-			else if (pageNo >= 4 && pageNo <= 6)
-			{
-				mouseOverBack = false;
-				mouseOverNext = false;
-				if (x >= 10 && x <= 240 && y >= 623 && y <= 688)
-					mouseOverBack = true;
-				else if (x >= 760 && x <= 990 && y >= 623 && y <= 688)
-					mouseOverNext = true;
-			}
-			else if (pageNo == 7)
-			{
-				mouseOverBackGame = false;
-				mouseOverBackMain = false;
-				mouseOverBack = false;
-				if (inGame)
-				{
-					if (x >= 760 && x <= 990 && y >= 623 && y <= 688)
-						mouseOverBackGame = true;
-				}
-				else
-				{
-					if (x >= 760 && x <= 990 && y >= 623 && y <= 688)
-						mouseOverBackMain = true;
-				}
-				if (x >= 10 && x <= 240 && y >= 623 && y <= 688)
-					mouseOverBack = true;
-			}
-			repaint();
+			else
+				repaintButtons(before ^ hoverState());
 		}
 	}
 
@@ -0,0 +1,223 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Remembers the results of positions that have already been searched so the
+ * same position reached by a different order of moves is not searched
+ * again. The table has a fixed number of entries worked out from the most
+ * memory it is allowed to use, and never grows. Every entry is a long holding
+ * the value, the depth searched, whether the value is exact or only a bound,
+ * and the best move. The table can be shared by several threads searching at
+ * once without locking: each entry and its key are read and written
+ * atomically, and the key is stored as the hash of the position mixed with
+ * the entry, so an entry whose key and value were written by two different
+ * threads does not match any position and is ignored. Entries are kept in
+ * pairs: a new result goes into the entry of the same position if there is
+ * one, otherwise it replaces the entry left by an older search, or else the
+ * one searched less deeply. Includes a constructor to make a table that fits
+ * in a given amount of memory, newSearch to start a new search, probe to look
+ * up a position, store to remember a result, clear to empty the table,
+ * capacity and memoryUsed to check its size, and value, depth, bound and
+ * bestMove to read an entry.
+ */
+public class TranspositionTable
+{
+	// The default most memory a table can use, in bytes
+	public final static long DEFAULT_MEMORY = 32L << 20;
+
+	// The kinds of values stored
+	public final static int EXACT = 1;
+	public final static int LOWER_BOUND = 2;
+	public final static int UPPER_BOUND = 3;
+
+	// The depth of a position that was searched to the end of the game, and
+	// the deepest search that is stored as it is. Deeper searches are stored
+	// as MAX_DEPTH, so a search can never be mistaken for a solved position.
+	public final static int SOLVED = Integer.MAX_VALUE;
+	public final static int MAX_DEPTH = 254;
+
+	// The memory used by each entry: the hash, the entry and its age
+	private final static int ENTRY_BYTES = 8 + 8 + 1;
+
+	// Where each part of an entry is packed
+	private final static int DEPTH_SHIFT = 2;
+	private final static int SOLVED_DEPTH = 255;
+	private final static int MOVE_SHIFT = 10;
+	private final static int VALUE_SHIFT = 32;
+	private final static long MOVE_MASK = (1L << 22) - 1;
+
+	// The hash of each position mixed with its entry, and the entries
+	private final AtomicLongArray keys;
+	private final AtomicLongArray entries;
+	private final byte[] ages;
+	private final int mask;
+	private byte age;
+
+	/**
+	 * Constructs a table that uses at most the given amount of memory. The
+	 * number of entries is the largest power of two that fits.
+	 * @param maxBytes the most memory the table can use, in bytes
+	 */
+	public TranspositionTable(long maxBytes)
+	{
+		long maxEntries = maxBytes / ENTRY_BYTES;
+		if (maxEntries < 2)
+			throw new IllegalArgumentException("A table needs at least "
+					+ 2 * ENTRY_BYTES + " bytes");
+		int size = Integer.highestOneBit((int) Math.min(maxEntries,
+				1 << 30));
+		keys = new AtomicLongArray(size);
+		entries = new AtomicLongArray(size);
+		ages = new byte[size];
+		mask = size - 1;
+		age = 0;
+	}
+
+	/**
+	 * Starts a new search. Entries from earlier searches are replaced first.
+	 */
+	public void newSearch()
+	{
+		age++;
+	}
+
+	/**
+	 * Looks up a position
+	 * @param hash the hash of the position
+	 * @return the entry of the position or 0 if it is not in the table
+	 */
+	public long probe(long hash)
+	{
+		int index = (int) hash & mask & ~1;
+		for (int slot = index; slot <= index + 1; slot++)
+		{
+			long entry = entries.get(slot);
+			if (entry != 0 && (keys.get(slot) ^ entry) == hash)
+				return entry;
+		}
+		return 0;
+	}
+
+	/**
+	 * Remembers the result of searching a position
+	 * @param hash the hash of the position
+	 * @param value the value found
+	 * @param depth the number of moves searched, or SOLVED. Deeper searches
+	 * 			than MAX_DEPTH are stored as MAX_DEPTH.
+	 * @param bound EXACT, LOWER_BOUND if the value is at least this much or
+	 * 			UPPER_BOUND if the value is at most this much
+	 * @param bestMove the edge of the best move or -1 if there is none
+	 */
+	public void store(long hash, int value, int depth, int bound, int bestMove)
+	{
+		int index = (int) hash & mask & ~1;
+		long first = entries.get(index);
+		long second = entries.get(index + 1);
+		boolean firstMatches = (keys.get(index) ^ first) == hash;
+		boolean secondMatches = (keys.get(index + 1) ^ second) == hash;
+		int slot;
+		if (firstMatches)
+			slot = index;
+		else if (secondMatches)
+			slot = index + 1;
+		else if (first == 0)
+			slot = index;
+		else if (second == 0)
+			slot = index + 1;
+		// Replace an entry from an older search, otherwise the shallower one
+		else if (ages[index] != age && ages[index + 1] == age)
+			slot = index;
+		else if (ages[index + 1] != age && ages[index] == age)
+			slot = index + 1;
+		else if (depth(first) <= depth(second))
+			slot = index;
+		else
+			slot = index + 1;
+		long old = slot == index ? first : second;
+
+		// Keep a deeper result of the same position from this search
+		if ((slot == index ? firstMatches : secondMatches) && old != 0
+				&& ages[slot] == age && depth(old) > depth && bound != EXACT)
+			return;
+		int storedDepth = depth == SOLVED ? SOLVED_DEPTH : Math.min(depth,
+				MAX_DEPTH);
+		long entry = (long) value << VALUE_SHIFT
+				| (bestMove + 1 & MOVE_MASK) << MOVE_SHIFT
+				| storedDepth << DEPTH_SHIFT | bound;
+		entries.set(slot, entry);
+		keys.set(slot, hash ^ entry);
+		ages[slot] = age;
+	}
+
+	/**
+	 * Empties the table
+	 */
+	public void clear()
+	{
+		for (int index = 0; index < ages.length; index++)
+		{
+			entries.set(index, 0);
+			keys.set(index, 0);
+		}
+		Arrays.fill(ages, (byte) 0);
+	}
+
+	/**
+	 * Returns the number of entries the table can hold
+	 * @return the number of entries
+	 */
+	public int capacity()
+	{
+		return ages.length;
+	}
+
+	/**
+	 * Returns the memory used by the entries of the table
+	 * @return the number of bytes used
+	 */
+	public long memoryUsed()
+	{
+		return (long) ages.length * ENTRY_BYTES;
+	}
+
+	/**
+	 * Reads the value of an entry
+	 * @param entry an entry from probe
+	 * @return the value
+	 */
+	public static int value(long entry)
+	{
+		return (int) (entry >> VALUE_SHIFT);
+	}
+
+	/**
+	 * Reads the depth of an entry
+	 * @param entry an entry from probe
+	 * @return the number of moves searched, at most MAX_DEPTH, or SOLVED
+	 */
+	public static int depth(long entry)
+	{
+		int depth = (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+		return depth == SOLVED_DEPTH ? SOLVED : depth;
+	}
+
+	/**
+	 * Reads the kind of value of an entry
+	 * @param entry an entry from probe
+	 * @return EXACT, LOWER_BOUND or UPPER_BOUND
+	 */
+	public static int bound(long entry)
+	{
+		return (int) entry & 0x3;
+	}
+
+	/**
+	 * Reads the best move of an entry
+	 * @param entry an entry from probe
+	 * @return the edge of the best move or -1 if there is none
+	 */
+	public static int bestMove(long entry)
+	{
+		return (int) ((entry >>> MOVE_SHIFT) & MOVE_MASK) - 1;
+	}
+}